@@ -0,0 +1,366 @@
+package main.analysis;
+
+import main.analysis.StrategyAnalyzer.GameResult;
+import main.analysis.StrategyAnalyzer.StrategyMetrics;
+import main.game.DecisionStats;
+import main.game.map.Map;
+import main.game.map.ObstacleDensity;
+import main.game.map.Tile;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+// Motor em lote: avança milhares de episódios em passo único (lockstep), com o estado em
+// arrays paralelos em vez de Map/Player/Point. Todos os mapas de um lote têm as mesmas
+// dimensões, ficam lado a lado num único byte[] e compartilham a tabela de vizinhos.
+// As regras são as de CustomGame: abrir um baú encerra o episódio, e o limite é 100 passos.
+public class BatchSimulator {
+    // Episódios por lote, limitado para que as grades de um lote caibam no cache
+    private static final int MAX_BATCH_EPISODES = 4096;
+    private static final int MAX_BATCH_BYTES = 1 << 22;
+    private static final int MAX_STEPS = 100;
+
+    // Escolhe de uma vez o próximo passo de todos os episódios ativos: nextCells[i] recebe a
+    // célula escolhida para o episódio active[i], ou -1 se não houver movimento possível
+    public interface Kernel {
+        void chooseNextCells(BatchSimulator batch, int[] active, int activeCount, int[] nextCells);
+    }
+
+    private final int from;
+    private final int sizeX;
+    private final int sizeY;
+    private final int cellsPerMap;
+    private final int episodes;
+
+    // Grades e conteúdo escondido dos baús, episódio e * cellsPerMap + célula
+    private final byte[] grids;
+    private final byte[] chests;
+    private final int[] robotCells;
+    private final int[] steps;
+    private final byte[] outcomes;
+    private final BitSet reachable;
+    // Tempo gasto no construtor buscando os mapas na fonte e copiando-os para as grades
+    private final long loadNanos;
+
+    // Vizinhos de cada célula na ordem do Player (y+1, x+1, x-1, y-1), iguais para todo o lote
+    private final int[] neighbours;
+    private final byte[] neighbourCounts;
+    // Obstáculos ao redor de cada célula, como Map.getAdjacentObstacleCount; só existe se algum
+    // kernel pedir, e então é mantido a cada passo
+    private byte[] obstacleCounts;
+
+    // Carrega os episódios from..from+episodes da fonte de mapas
+    public BatchSimulator(IntFunction<Map> maps, int from, int episodes) {
+        long start = System.nanoTime();
+        this.from = from;
+        Map first = maps.apply(from);
+        int sizeX = first.getSizeX();
+        this.sizeX = sizeX;
+        this.sizeY = first.getSizeY();
+        this.cellsPerMap = Math.toIntExact((long) sizeX * this.sizeY);
+        this.episodes = episodes;
+        this.grids = new byte[Math.multiplyExact(episodes, this.cellsPerMap)];
+        this.chests = new byte[this.grids.length];
+        this.robotCells = new int[episodes];
+        this.steps = new int[episodes];
+        this.outcomes = new byte[episodes];
+        this.reachable = new BitSet(episodes);
+
+        this.neighbours = new int[this.cellsPerMap * 4];
+        this.neighbourCounts = new byte[this.cellsPerMap];
+        int[] cellNeighbours = new int[4];
+        for (int cell = 0; cell < this.cellsPerMap; cell++) {
+            int count = first.neighbourCells(cell, cellNeighbours);
+            System.arraycopy(cellNeighbours, 0, this.neighbours, cell * 4, count);
+            this.neighbourCounts[cell] = (byte) count;
+        }
+
+        int[] stack = new int[this.cellsPerMap];
+        int[] seen = new int[this.cellsPerMap];
+        for (int e = 0; e < episodes; e++) {
+            Map map = e == 0 ? first : maps.apply(from + e);
+            if (map.getSizeX() != sizeX || map.getSizeY() != this.sizeY) {
+                throw new IllegalArgumentException("Todos os mapas de um lote devem ter as mesmas dimensões");
+            }
+            int base = e * this.cellsPerMap;
+            map.copyTiles(this.grids, base);
+            for (int cell = 0; cell < this.cellsPerMap; cell++) {
+                if (this.grids[base + cell] == Tile.TREASURE_CHEST) {
+                    this.chests[base + cell] = map.getChestContent(cell);
+                }
+            }
+            this.robotCells[e] = map.getRobotCell();
+            if (isTreasureReachable(e, stack, seen)) {
+                this.reachable.set(e);
+            }
+        }
+        this.loadNanos = System.nanoTime() - start;
+    }
+
+    // Mesmas regras de TreasureReachability: o robô anda sobre qualquer célula, só os outros baús bloqueiam
+    private boolean isTreasureReachable(int episode, int[] stack, int[] seen) {
+        int base = episode * this.cellsPerMap;
+        int mark = episode + 1;
+        int size = 0;
+        stack[size++] = this.robotCells[episode];
+        seen[this.robotCells[episode]] = mark;
+        while (size > 0) {
+            int cell = stack[--size];
+            for (int i = cell * 4, end = i + this.neighbourCounts[cell]; i < end; i++) {
+                int next = this.neighbours[i];
+                if (seen[next] == mark) {
+                    continue;
+                }
+                seen[next] = mark;
+                byte tile = this.grids[base + next];
+                if (tile == Tile.TREASURE_CHEST) {
+                    if (this.chests[base + next] == Tile.CHEST_TREASURE) {
+                        return true;
+                    }
+                } else {
+                    stack[size++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    public long getLoadNanos() {
+        return this.loadNanos;
+    }
+
+    public int getEpisodes() {
+        return this.episodes;
+    }
+
+    public int getRobotCell(int episode) {
+        return this.robotCells[episode];
+    }
+
+    public byte getTile(int episode, int cell) {
+        return this.grids[episode * this.cellsPerMap + cell];
+    }
+
+    public int getNeighbourCount(int cell) {
+        return this.neighbourCounts[cell];
+    }
+
+    // k-ésimo vizinho de cell, com k menor que getNeighbourCount(cell)
+    public int getNeighbour(int cell, int k) {
+        return this.neighbours[cell * 4 + k];
+    }
+
+    public int getAdjacentObstacleCount(int episode, int cell) {
+        return obstacleCounts()[episode * this.cellsPerMap + cell];
+    }
+
+    private byte[] obstacleCounts() {
+        if (this.obstacleCounts == null) {
+            this.obstacleCounts = new byte[this.grids.length];
+            for (int e = 0; e < this.episodes; e++) {
+                int base = e * this.cellsPerMap;
+                for (int cell = 0; cell < this.cellsPerMap; cell++) {
+                    if (Tile.isObstacle(this.grids[base + cell])) {
+                        ObstacleDensity.adjust(this.obstacleCounts, base, this.sizeX, this.sizeY, cell, 1);
+                    }
+                }
+            }
+        }
+        return this.obstacleCounts;
+    }
+
+    public StrategyMetrics run(Kernel kernel, boolean skipUnreachable, DecisionStats stats) {
+        return run(kernel, skipUnreachable, stats, null, null);
+    }
+    
+    // Com output não nulo, cada resultado é emitido com o nome da estratégia e o índice do jogo
+    public StrategyMetrics run(Kernel kernel, boolean skipUnreachable, DecisionStats stats, String strategyName, ResultStream output) {
+        long start = System.nanoTime();
+        StrategyMetrics metrics = new StrategyMetrics(stats);
+        int[] active = new int[this.episodes];
+        int[] nextCells = new int[this.episodes];
+        int activeCount = 0;
+        for (int e = 0; e < this.episodes; e++) {
+            if (!skipUnreachable || this.reachable.get(e)) {
+                active[activeCount++] = e;
+            }
+        }
+
+        long totalSteps = 0;
+        long chestOpenings = 0;
+        long timeouts = 0;
+        while (activeCount > 0) {
+            kernel.chooseNextCells(this, active, activeCount, nextCells);
+
+            int kept = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int e = active[i];
+                int next = nextCells[i];
+                if (next < 0) {
+                    continue;
+                }
+                this.steps[e]++;
+                totalSteps++;
+
+                int base = e * this.cellsPerMap;
+                if (this.grids[base + next] == Tile.TREASURE_CHEST) {
+                    this.grids[base + next] = this.chests[base + next];
+                    this.outcomes[e] = this.chests[base + next];
+                    chestOpenings++;
+                    continue;
+                }
+
+                // Pisar num obstáculo (mapa do tesouro, monstro) o remove da vizinhança
+                if (this.obstacleCounts != null && Tile.isObstacle(this.grids[base + next])) {
+                    ObstacleDensity.adjust(this.obstacleCounts, base, this.sizeX, this.sizeY, next, -1);
+                }
+                this.grids[base + next] = Tile.ROBOT;
+                this.grids[base + this.robotCells[e]] = Tile.EMPTY;
+                this.robotCells[e] = next;
+                if (this.steps[e] > MAX_STEPS) {
+                    timeouts++;
+                    continue;
+                }
+                active[kept++] = e;
+            }
+            activeCount = kept;
+        }
+        stats.addSteps(totalSteps);
+        stats.addChestOpenings(chestOpenings);
+        stats.addTimeouts(timeouts);
+        // Só o avanço dos episódios; a emissão dos resultados fica de fora
+        stats.addBatch(this.loadNanos, System.nanoTime() - start);
+
+        for (int e = 0; e < this.episodes; e++) {
+            GameResult result;
+            if (skipUnreachable && !this.reachable.get(e)) {
+                result = new GameResult(null, 0, false, true);
+            } else {
+                String finalState = this.outcomes[e] == Tile.NONE ? null : Tile.toCharacter(this.outcomes[e]);
+                boolean timedOut = finalState == null && this.steps[e] > MAX_STEPS;
+                result = new GameResult(finalState, this.steps[e], this.reachable.get(e), false, timedOut);
+            }
+            metrics.record(result);
+            if (output != null) {
+                output.emit(strategyName, this.from + e, result);
+            }
+        }
+        return metrics;
+    }
+
+    // Primeiro vizinho na ordem do Player. É o que ShortestDistance escolhe: todo vizinho está
+    // a distância 1 e o empate fica com o primeiro
+    static class FirstNeighbourKernel implements Kernel {
+        @Override
+        public void chooseNextCells(BatchSimulator batch, int[] active, int activeCount, int[] nextCells) {
+            int[] neighbours = batch.neighbours;
+            byte[] counts = batch.neighbourCounts;
+            int[] robotCells = batch.robotCells;
+            for (int i = 0; i < activeCount; i++) {
+                int cell = robotCells[active[i]];
+                nextCells[i] = counts[cell] == 0 ? -1 : neighbours[cell * 4];
+            }
+        }
+    }
+
+    // Vizinho com menos obstáculos ao redor, empate para o primeiro, como FewerObstacles
+    static class FewerObstaclesKernel implements Kernel {
+        @Override
+        public void chooseNextCells(BatchSimulator batch, int[] active, int activeCount, int[] nextCells) {
+            int[] neighbours = batch.neighbours;
+            byte[] counts = batch.neighbourCounts;
+            int[] robotCells = batch.robotCells;
+            byte[] obstacles = batch.obstacleCounts();
+            for (int i = 0; i < activeCount; i++) {
+                int base = active[i] * batch.cellsPerMap;
+                int cell = robotCells[active[i]];
+                int best = -1;
+                int bestCount = Integer.MAX_VALUE;
+                for (int k = cell * 4, end = k + counts[cell]; k < end; k++) {
+                    int obstacleCount = obstacles[base + neighbours[k]];
+                    if (obstacleCount < bestCount) {
+                        bestCount = obstacleCount;
+                        best = neighbours[k];
+                    }
+                }
+                nextCells[i] = best;
+            }
+        }
+    }
+
+    // Vizinho sorteado, como Sort
+    static class RandomNeighbourKernel implements Kernel {
+        private final SplittableRandom random;
+
+        RandomNeighbourKernel(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public void chooseNextCells(BatchSimulator batch, int[] active, int activeCount, int[] nextCells) {
+            int[] neighbours = batch.neighbours;
+            byte[] counts = batch.neighbourCounts;
+            int[] robotCells = batch.robotCells;
+            for (int i = 0; i < activeCount; i++) {
+                int cell = robotCells[active[i]];
+                int count = counts[cell];
+                nextCells[i] = count == 0 ? -1 : neighbours[cell * 4 + random.nextInt(count)];
+            }
+        }
+    }
+
+    public static boolean supports(String strategyName) {
+        return kernelFor(strategyName, 0) != null;
+    }
+
+    // Kernel equivalente à estratégia, ou null se ela não tiver versão em lote
+    static Kernel kernelFor(String strategyName, long seed) {
+        switch (strategyName) {
+            case "ShortestDistance":
+                return new FirstNeighbourKernel();
+            case "FewerObstacles":
+                return new FewerObstaclesKernel();
+            case "Sort":
+                return new RandomNeighbourKernel(seed);
+            default:
+                return null;
+        }
+    }
+
+    // Joga games episódios da estratégia em lotes, um lote por tarefa no pool comum. Todos os
+    // mapas da fonte devem ter sizeX x sizeY células, que definem quantos episódios cabem num lote
+    public static StrategyMetrics simulate(String strategyName, IntFunction<Map> maps, int sizeX, int sizeY, int games,
+                                           boolean skipUnreachable, long seed) {
+        return simulate(strategyName, maps, sizeX, sizeY, games, skipUnreachable, seed, null);
+    }
+
+    public static StrategyMetrics simulate(String strategyName, IntFunction<Map> maps, int sizeX, int sizeY, int games,
+                                           boolean skipUnreachable, long seed, ResultStream output) {
+        if (!supports(strategyName)) {
+            throw new IllegalArgumentException("Estratégia sem kernel em lote: " + strategyName);
+        }
+        DecisionStats stats = new DecisionStats();
+        int cellsPerMap = Math.multiplyExact(sizeX, sizeY);
+        int batchEpisodes = Math.max(1, Math.min(MAX_BATCH_EPISODES, MAX_BATCH_BYTES / cellsPerMap));
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<ForkJoinTask<StrategyMetrics>> tasks = new ArrayList<>();
+        for (int from = 0; from < games; from += batchEpisodes) {
+            int batchFrom = from;
+            int episodes = Math.min(batchEpisodes, games - from);
+            Kernel kernel = kernelFor(strategyName, StrategyAnalyzer.gameSeed(seed, from));
+            tasks.add(pool.submit(() -> new BatchSimulator(maps, batchFrom, episodes).run(kernel, skipUnreachable, stats, strategyName, output)));
+        }
+
+        StrategyMetrics metrics = new StrategyMetrics(stats);
+        for (ForkJoinTask<StrategyMetrics> task : tasks) {
+            metrics.merge(task.join());
+        }
+        return metrics;
+    }
+}
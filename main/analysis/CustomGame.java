@@ -0,0 +1,125 @@
+package main.analysis;
+
+import main.game.DecisionStats;
+import main.game.Player;
+import main.game.map.GameJournal;
+import main.game.map.Map;
+import main.game.map.Tile;
+import main.strategies.Strategy;
+
+class CustomGame {
+    private Map map;
+    private Player player;
+    private int steps;
+    private String finalState;
+    private boolean treasureReachable;
+    private boolean skipUnreachable;
+    private GameJournal journal;
+    private String label;
+    private GameJournal.Recorder recorder;
+    private DecisionStats stats;
+    
+    public CustomGame(Strategy strategy, long seed) {
+        this(strategy, seed, false);
+    }
+    
+    public CustomGame(Strategy strategy, long seed, boolean skipUnreachable) {
+        this(strategy, new Map(8, 8, seed), skipUnreachable);
+    }
+    
+    public CustomGame(Strategy strategy, Map map) {
+        this(strategy, map, false);
+    }
+    
+    public CustomGame(Strategy strategy, Map map, boolean skipUnreachable) {
+        this(strategy, map, skipUnreachable, (DecisionStats) null);
+    }
+    
+    // With stats, every decision is timed and steps, chest openings and timeouts are counted
+    public CustomGame(Strategy strategy, Map map, boolean skipUnreachable, DecisionStats stats) {
+        this(strategy, map, skipUnreachable, TreasureReachability.isReachable(map), stats);
+    }
+    
+    // treasureReachable comes from the caller, who may have already computed it for this map
+    // (see TreasureReachability)
+    public CustomGame(Strategy strategy, Map map, boolean skipUnreachable, boolean treasureReachable, DecisionStats stats) {
+        this.map = map;
+        this.stats = stats;
+        this.player = new Player(strategy, stats);
+        this.steps = 0;
+        this.skipUnreachable = skipUnreachable;
+        this.treasureReachable = treasureReachable;
+    }
+    
+    // Records the episode (starting from the map as it is now) into the journal
+    public CustomGame(Strategy strategy, Map map, boolean skipUnreachable, GameJournal journal, String label) {
+        this(strategy, map, skipUnreachable, journal, label, null);
+    }
+    
+    public CustomGame(Strategy strategy, Map map, boolean skipUnreachable, GameJournal journal, String label, DecisionStats stats) {
+        this(strategy, map, skipUnreachable, TreasureReachability.isReachable(map), journal, label, stats);
+    }
+    
+    public CustomGame(Strategy strategy, Map map, boolean skipUnreachable, boolean treasureReachable, GameJournal journal, String label,
+                      DecisionStats stats) {
+        this(strategy, map, skipUnreachable, treasureReachable, stats);
+        this.journal = journal;
+        this.label = label;
+    }
+    
+    public StrategyAnalyzer.GameResult runAndAnalyze() {
+        if (skipUnreachable && !treasureReachable) {
+            return new StrategyAnalyzer.GameResult(null, 0, false, true);
+        }
+        // Only episodes that are actually played are recorded
+        if (journal != null) {
+            recorder = journal.begin(label, map);
+        }
+        StrategyAnalyzer.GameResult result = play();
+        if (recorder != null) {
+            recorder.finish();
+        }
+        return result;
+    }
+    
+    private StrategyAnalyzer.GameResult play() {
+        while (true) {
+            int nextCell = this.player.evaluatePossibleNextCell(map);
+            if (nextCell < 0) {
+                return new StrategyAnalyzer.GameResult(null, steps, treasureReachable);
+            }
+            
+            steps++;
+            if (stats != null) {
+                stats.recordStep();
+            }
+            if (recorder != null) {
+                recorder.step(nextCell);
+            }
+            if (this.map.getTile(nextCell) == Tile.TREASURE_CHEST) {
+                // Sem as mensagens de openTreasureChest: o analisador e o benchmark jogam milhões de
+                // partidas, e o console dominaria o tempo medido
+                this.map.revealTreasureChest(nextCell);
+                if (stats != null) {
+                    stats.recordChestOpening();
+                }
+                // Store the final state (treasure, trap, or empty)
+                finalState = Tile.toCharacter(this.map.getTile(nextCell));
+                if (recorder != null) {
+                    recorder.chest(this.map.getTile(nextCell), false);
+                }
+                return new StrategyAnalyzer.GameResult(finalState, steps, treasureReachable);
+            }
+            
+            this.map.moveRobot(nextCell);
+            
+            // Optional: Add maximum steps limit to prevent infinite loops
+            if (steps > 100) {
+                if (stats != null) {
+                    stats.recordTimeout();
+                }
+                return new StrategyAnalyzer.GameResult(null, steps, treasureReachable, false, true);
+            }
+        }
+    }
+}
\ No newline at end of file
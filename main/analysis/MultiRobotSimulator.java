@@ -0,0 +1,234 @@
+package main.analysis;
+
+import main.analysis.StrategyAnalyzer.GameResult;
+import main.analysis.StrategyAnalyzer.StrategyMetrics;
+import main.game.DecisionStats;
+import main.game.LatencyHistogram;
+import main.game.Player;
+import main.game.map.Map;
+import main.game.map.MapGenerator;
+import main.game.map.SharedBoard;
+import main.game.map.Tile;
+import main.strategies.Strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Vários robôs, cada um com sua estratégia, jogando ao mesmo tempo no mesmo cenário (ver SharedBoard).
+// Cada robô é uma tarefa que dá um passo e se reagenda num pool FIFO, então milhares de robôs se
+// intercalam em poucas threads. As regras por robô são as de CustomGame: abrir um baú encerra a
+// partida dele e o limite é 100 passos. Tentar entrar numa célula que outro robô tomou, ou abrir
+// um baú que outro abriu antes, gasta o passo sem sair do lugar e conta como disputa perdida.
+// Se a estratégia de algum robô falhar, os demais param no passo seguinte e simulate relança o erro.
+public class MultiRobotSimulator {
+    private static final int MAX_STEPS = 100;
+
+    public static class Result {
+        final java.util.Map<String, StrategyMetrics> metrics;
+        final long steps;
+        final long blockedMoves;
+        final long lostChests;
+        final long elapsedNanos;
+
+        Result(java.util.Map<String, StrategyMetrics> metrics, long steps, long blockedMoves, long lostChests, long elapsedNanos) {
+            this.metrics = metrics;
+            this.steps = steps;
+            this.blockedMoves = blockedMoves;
+            this.lostChests = lostChests;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public java.util.Map<String, StrategyMetrics> getMetrics() {
+            return metrics;
+        }
+
+        public long getBlockedMoves() {
+            return blockedMoves;
+        }
+
+        public long getLostChests() {
+            return lostChests;
+        }
+
+        public double getStepsPerSecond() {
+            return steps * 1e9 / elapsedNanos;
+        }
+    }
+
+    private final SharedBoard board;
+    private final ForkJoinPool pool;
+    private final CountDownLatch finished;
+    private final GameResult[] results;
+    private final LongAdder blockedMoves = new LongAdder();
+    private final LongAdder lostChests = new LongAdder();
+    // Primeira falha de uma estratégia, relançada por simulate
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private class Robot implements Runnable {
+        private final int id;
+        private final Map view;
+        private final Player player;
+        private final DecisionStats stats;
+        private int steps;
+
+        Robot(int id, Map view, Strategy strategy, DecisionStats stats) {
+            this.id = id;
+            this.view = view;
+            this.player = new Player(strategy, stats);
+            this.stats = stats;
+        }
+
+        @Override
+        public void run() {
+            GameResult result;
+            try {
+                result = failure.get() == null ? step() : new GameResult(null, steps, false);
+            } catch (RuntimeException | Error e) {
+                // Sem isto o pool engoliria o erro e simulate esperaria para sempre
+                failure.compareAndSet(null, e);
+                result = new GameResult(null, steps, false);
+            }
+            if (result == null) {
+                pool.execute(this);
+                return;
+            }
+            board.leave(view, id);
+            results[id] = result;
+            finished.countDown();
+        }
+
+        // Um passo; devolve o resultado quando a partida do robô termina, senão null
+        private GameResult step() {
+            int nextCell = player.evaluatePossibleNextCell(view);
+            if (nextCell < 0) {
+                return new GameResult(null, steps, false);
+            }
+            steps++;
+            stats.recordStep();
+
+            if (view.getTile(nextCell) == Tile.TREASURE_CHEST) {
+                byte content = board.openTreasureChest(view, nextCell);
+                if (content != Tile.NONE) {
+                    stats.recordChestOpening();
+                    return new GameResult(Tile.toCharacter(content), steps, false);
+                }
+                lostChests.increment();
+            } else if (!board.moveRobot(view, id, nextCell)) {
+                blockedMoves.increment();
+            }
+
+            if (steps > MAX_STEPS) {
+                stats.recordTimeout();
+                return new GameResult(null, steps, false, false, true);
+            }
+            return null;
+        }
+    }
+
+    private MultiRobotSimulator(SharedBoard board, int robots, int parallelism) {
+        this.board = board;
+        // asyncMode: tarefas reagendadas vão para o fim da fila, então os robôs se revezam
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.finished = new CountDownLatch(robots);
+        this.results = new GameResult[robots];
+    }
+
+    // Joga robots robôs no mapa, com as estratégias distribuídas em rodízio. O robô 0 começa na
+    // posição original do mapa, os demais em células livres sorteadas a partir de seed.
+    public static Result simulate(Map map, List<String> strategyNames, int robots, long seed, int parallelism) {
+        SharedBoard board = new SharedBoard(map);
+        int start = map.getRobotCell();
+        MultiRobotSimulator simulator = new MultiRobotSimulator(board, robots, parallelism);
+
+        java.util.Map<String, Supplier<Strategy>> factories = StrategyAnalyzer.strategyFactories();
+        java.util.Map<String, DecisionStats> stats = new TreeMap<>();
+        String[] names = new String[robots];
+        List<Robot> all = new ArrayList<>(robots);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int id = 0; id < robots; id++) {
+            String name = strategyNames.get(id % strategyNames.size());
+            Supplier<Strategy> factory = factories.get(name);
+            if (factory == null) {
+                throw new IllegalArgumentException("Estratégia desconhecida: " + name);
+            }
+            Map view = id == 0 ? board.join(id, start) : board.joinAtRandom(id, random);
+            names[id] = name;
+            all.add(simulator.new Robot(id, view, factory.get(), stats.computeIfAbsent(name, key -> new DecisionStats())));
+        }
+
+        long begin = System.nanoTime();
+        try {
+            all.forEach(simulator.pool::execute);
+            simulator.finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido esperando os robôs", e);
+        } finally {
+            simulator.pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - begin;
+        Throwable failure = simulator.failure.get();
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+
+        java.util.Map<String, StrategyMetrics> metrics = new TreeMap<>();
+        long steps = 0;
+        for (int id = 0; id < robots; id++) {
+            metrics.computeIfAbsent(names[id], name -> new StrategyMetrics(stats.get(name))).record(simulator.results[id]);
+            steps += simulator.results[id].steps;
+        }
+        return new Result(metrics, steps, simulator.blockedMoves.sum(), simulator.lostChests.sum(), elapsed);
+    }
+
+    public static void main(String[] args) {
+        int size = 64;
+        int robots = 64;
+        int chests = 16;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        List<String> strategies = new ArrayList<>(new TreeMap<>(StrategyAnalyzer.strategyFactories()).keySet());
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--size") && i + 1 < args.length) {
+                size = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--robots") && i + 1 < args.length) {
+                robots = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--chests") && i + 1 < args.length) {
+                chests = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--parallelism") && i + 1 < args.length) {
+                parallelism = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--strategies") && i + 1 < args.length) {
+                strategies = Arrays.asList(args[++i].split(","));
+            }
+        }
+
+        // chests baús de cada tipo, rochas e monstros nas densidades do benchmark
+        long cells = (long) size * size;
+        MapGenerator generator = new MapGenerator((int) (cells * 0.05 / 4), (int) (cells * 0.01), 1, chests, chests, chests);
+        Result result = simulate(new Map(size, size, seed, generator), strategies, robots, seed, parallelism);
+
+        System.out.println("Multi-robot simulation (" + robots + " robots on " + size + "x" + size + ", "
+            + parallelism + " threads, seed " + seed + "):\n");
+        for (java.util.Map.Entry<String, StrategyMetrics> entry : result.metrics.entrySet()) {
+            StrategyMetrics metrics = entry.getValue();
+            LatencyHistogram latency = metrics.getDecisionStats().getDecisionLatency();
+            System.out.printf("%-18s robots %5d  victories %6.2f%%  avg steps %6.2f  decision p50/p99 %.2f / %.2f us\n",
+                entry.getKey(), metrics.getGames(), metrics.getVictoryRate() * 100, metrics.getAverageSteps(),
+                latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3);
+        }
+        System.out.printf("\nSteps/s: %.0f, Blocked Moves: %d, Lost Chest Races: %d\n",
+            result.getStepsPerSecond(), result.blockedMoves, result.lostChests);
+    }
+}
@@ -0,0 +1,155 @@
+package main.analysis;
+
+import main.analysis.StrategyAnalyzer.GameResult;
+import main.analysis.StrategyAnalyzer.StrategyMetrics;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Saída incremental do analisador: cada GameResult vira uma linha CSV ou JSONL, escrita por
+// uma thread própria através de um BufferedWriter. Quem joga só enfileira o resultado; a fila
+// é limitada, então a memória fica constante mesmo em varreduras de milhões de jogos.
+// A mesma thread mantém agregados por estratégia e imprime o progresso uma vez por segundo.
+public class ResultStream implements Closeable {
+    public enum Format { CSV, JSONL }
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final Entry END = new Entry(null, 0, null);
+    private static final String TIMEOUT = "TIMEOUT";
+
+    private static class Entry {
+        final String strategy;
+        final int game;
+        final GameResult result;
+
+        Entry(String strategy, int game, GameResult result) {
+            this.strategy = strategy;
+            this.game = game;
+            this.result = result;
+        }
+    }
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BufferedWriter writer;
+    private final Format format;
+    private final boolean printProgress;
+    private final Thread thread;
+    // Só a thread de escrita mexe nos agregados
+    private final java.util.Map<String, StrategyMetrics> aggregates = new TreeMap<>();
+    private long written;
+    private volatile IOException failure;
+
+    public ResultStream(Path file, Format format, boolean printProgress) throws IOException {
+        this.writer = Files.newBufferedWriter(file);
+        this.format = format;
+        this.printProgress = printProgress;
+        if (format == Format.CSV) {
+            this.writer.write("strategy,game,final_state,steps,reachable,skipped\n");
+        }
+        this.thread = new Thread(this::drain, "result-stream");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Formato pela extensão: .jsonl ou .json gravam JSONL, qualquer outra CSV
+    public static ResultStream open(Path file, boolean printProgress) throws IOException {
+        String name = file.getFileName().toString();
+        Format format = name.endsWith(".jsonl") || name.endsWith(".json") ? Format.JSONL : Format.CSV;
+        return new ResultStream(file, format, printProgress);
+    }
+
+    // Pode ser chamado de várias threads; bloqueia só se a escrita estiver muito atrasada.
+    // Interrompido na espera, o resultado não entra na saída: em vez de perdê-lo calado, falha
+    public void emit(String strategy, int game, GameResult result) {
+        try {
+            this.queue.put(new Entry(strategy, game, result));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido enfileirando o resultado do jogo " + game + " de " + strategy, e);
+        }
+    }
+
+    private void drain() {
+        long nextProgress = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
+        try {
+            while (true) {
+                Entry entry = this.queue.poll(PROGRESS_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+                if (entry == END) {
+                    break;
+                }
+                // Depois de uma falha continua esvaziando a fila, para não travar quem está jogando
+                if (entry != null && this.failure == null) {
+                    try {
+                        write(entry);
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+                if (this.printProgress && System.nanoTime() >= nextProgress) {
+                    printProgress();
+                    nextProgress = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
+                }
+            }
+            if (this.failure == null) {
+                this.writer.flush();
+            }
+        } catch (IOException e) {
+            this.failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        GameResult result = entry.result;
+        this.aggregates.computeIfAbsent(entry.strategy, name -> new StrategyMetrics()).record(result);
+        this.written++;
+
+        // Partidas que estouraram o limite de passos não abriram baú, mas ganham um estado explícito
+        String finalState = result.timedOut ? TIMEOUT : result.finalState;
+        if (this.format == Format.CSV) {
+            this.writer.write(entry.strategy + "," + entry.game + "," + (finalState == null ? "" : finalState) + ","
+                + result.steps + "," + result.wasReachable + "," + result.skipped + "\n");
+        } else {
+            this.writer.write("{\"strategy\":\"" + entry.strategy + "\",\"game\":" + entry.game
+                + ",\"final_state\":" + (finalState == null ? "null" : "\"" + finalState + "\"")
+                + ",\"steps\":" + result.steps + ",\"reachable\":" + result.wasReachable
+                + ",\"skipped\":" + result.skipped + "}\n");
+        }
+    }
+
+    private void printProgress() {
+        StringBuilder line = new StringBuilder("[" + this.written + " games]");
+        for (java.util.Map.Entry<String, StrategyMetrics> entry : this.aggregates.entrySet()) {
+            StrategyMetrics metrics = entry.getValue();
+            line.append(String.format(" %s %.2f%% wins %.2f steps;", entry.getKey(),
+                metrics.getVictoryRate() * 100, metrics.getAverageSteps()));
+        }
+        System.err.println(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.queue.put(END);
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido esperando a escrita dos resultados");
+        } finally {
+            this.writer.close();
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+}
@@ -1,23 +1,66 @@
 package main.analysis;
 
-import main.game.Game;
-import main.game.Player;
+import main.game.DecisionStats;
+import main.game.LatencyHistogram;
+import main.game.map.GameJournal;
 import main.game.map.Map;
-import main.game.map.Point;
+import main.game.map.MapCorpus;
 import main.game.map.TreasureChest;
 import main.strategies.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 public class StrategyAnalyzer {
-    private static final int NUMBER_OF_GAMES = 100;
+    private static final int DEFAULT_NUMBER_OF_GAMES = 100;
+    private static final long DEFAULT_STRATEGY_SEED = 0L;
+    // Lado dos mapas gerados por semente
+    private static final int MAP_SIZE = 8;
+    // Quantidade de jogos abaixo da qual uma tarefa paralela não é mais dividida
+    private static final int GAMES_PER_TASK = 4;
+    // Modo adaptativo: jogos por rodada, mínimo antes de parar e máximo quando --games não é dado
+    private static final int ADAPTIVE_ROUND_GAMES = 100;
+    private static final int ADAPTIVE_MIN_GAMES = 200;
+    private static final int ADAPTIVE_MAX_GAMES = 100_000;
+    // Intervalo de vitória mais estreito que isso encerra a estratégia mesmo sem separação (empate)
+    private static final double ADAPTIVE_TIE_WIDTH = 0.02;
+    // Nível de significância do teste de separação, dividido entre todas as verificações
+    private static final double ADAPTIVE_ALPHA = 0.05;
+    // Quantil normal dos intervalos de 95%
+    private static final double Z_95 = 1.959964;
+    // Fábricas trocadas por opções de linha de comando (ex.: --parallel-votes), aplicadas
+    // sobre as padrão em strategyFactories()
+    private static final java.util.Map<String, Supplier<Strategy>> CONFIGURED_FACTORIES = new ConcurrentHashMap<>();
     
     public static class StrategyMetrics {
-        private int totalSteps;
+        private long totalSteps;        // long: sweeps of millions of games overflow an int
         private int victories;
         private int treasureFound;      // True Positives
         private int falsePositives;     // Found trap chest
         private int falseNegatives;     // Failed to find treasure when it was reachable
+        private int games;              // Games actually played
+        private int skippedGames;       // Unreachable maps skipped up front
+        private double stepsMean;       // Welford running mean and squared deviations of steps
+        private double stepsM2;
+        private final DecisionStats decisionStats; // Shared by every game of the strategy, even in parallel
+        
+        public StrategyMetrics() {
+            this(new DecisionStats());
+        }
+        
+        StrategyMetrics(DecisionStats decisionStats) {
+            this.decisionStats = decisionStats;
+        }
         
         public double getPrecision() {
             if (treasureFound + falsePositives == 0) return 0.0;
@@ -30,11 +73,84 @@ public class StrategyAnalyzer {
         }
         
         public double getAverageSteps() {
-            return (double) totalSteps / NUMBER_OF_GAMES;
+            if (games == 0) return 0.0;
+            return (double) totalSteps / games;
         }
         
         public double getVictoryRate() {
-            return (double) victories / NUMBER_OF_GAMES;
+            if (games == 0) return 0.0;
+            return (double) victories / games;
+        }
+        
+        public int getSkippedGames() {
+            return skippedGames;
+        }
+        
+        public int getGames() {
+            return games;
+        }
+        
+        public double getStepsStandardDeviation() {
+            if (games < 2) return 0.0;
+            return Math.sqrt(stepsM2 / (games - 1));
+        }
+        
+        // Wilson score interval for the victory rate, {low, high}
+        public double[] getVictoryRateInterval(double z) {
+            if (games == 0) return new double[] {0.0, 1.0};
+            double p = getVictoryRate();
+            double z2n = z * z / games;
+            double center = (p + z2n / 2) / (1 + z2n);
+            double half = z * Math.sqrt(p * (1 - p) / games + z2n / (4 * games)) / (1 + z2n);
+            return new double[] {Math.max(0.0, center - half), Math.min(1.0, center + half)};
+        }
+        
+        // Normal interval for the mean number of steps, {low, high}
+        public double[] getAverageStepsInterval(double z) {
+            double half = games == 0 ? 0.0 : z * getStepsStandardDeviation() / Math.sqrt(games);
+            return new double[] {getAverageSteps() - half, getAverageSteps() + half};
+        }
+        
+        public DecisionStats getDecisionStats() {
+            return decisionStats;
+        }
+        
+        void record(GameResult result) {
+            if (result.skipped) {
+                skippedGames++;
+                return;
+            }
+            games++;
+            totalSteps += result.steps;
+            double delta = result.steps - stepsMean;
+            stepsMean += delta / games;
+            stepsM2 += delta * (result.steps - stepsMean);
+            
+            if (result.finalState != null && result.finalState.equals(TreasureChest.CHEST_TRESURE_CHARACTER)) {
+                victories++;
+                treasureFound++;
+            } else if (result.finalState != null && result.finalState.equals(TreasureChest.CHEST_TRAP_CHARACTER)) {
+                falsePositives++;
+            } else if (result.wasReachable) {
+                falseNegatives++;
+            }
+        }
+        
+        void merge(StrategyMetrics other) {
+            // Chan et al.: combines two Welford accumulators
+            if (other.games > 0) {
+                long n = (long) games + other.games;
+                double delta = other.stepsMean - stepsMean;
+                stepsMean += delta * other.games / n;
+                stepsM2 += other.stepsM2 + delta * delta * games * other.games / n;
+            }
+            totalSteps += other.totalSteps;
+            victories += other.victories;
+            treasureFound += other.treasureFound;
+            falsePositives += other.falsePositives;
+            falseNegatives += other.falseNegatives;
+            games += other.games;
+            skippedGames += other.skippedGames;
         }
     }
     
@@ -42,124 +158,481 @@ public class StrategyAnalyzer {
         String finalState;
         int steps;
         boolean wasReachable;
+        boolean skipped;
+        // Ended by the step limit rather than by opening a chest or getting stuck
+        boolean timedOut;
         
         public GameResult(String finalState, int steps, boolean wasReachable) {
+            this(finalState, steps, wasReachable, false);
+        }
+        
+        public GameResult(String finalState, int steps, boolean wasReachable, boolean skipped) {
+            this(finalState, steps, wasReachable, skipped, false);
+        }
+        
+        public GameResult(String finalState, int steps, boolean wasReachable, boolean skipped, boolean timedOut) {
             this.finalState = finalState;
             this.steps = steps;
             this.wasReachable = wasReachable;
+            this.skipped = skipped;
+            this.timedOut = timedOut;
         }
     }
     
-    public static java.util.Map<String, StrategyMetrics> analyzeStrategies() {
-        java.util.Map<String, Strategy> strategies = new HashMap<>();
-        strategies.put("FewerObstacles", new FewerObstacles());
-        strategies.put("ShortestDistance", new ShortestDistance());
-        strategies.put("Sort", new Sort());
-        strategies.put("Rollback", new Rollback());
-        strategies.put("BinaryTreeDFS", new BinaryTreeDFS());
-        strategies.put("Votacao", new Votacao());
-        
+    static java.util.Map<String, Supplier<Strategy>> strategyFactories() {
+        java.util.Map<String, Supplier<Strategy>> factories = new HashMap<>();
+        factories.put("FewerObstacles", FewerObstacles::new);
+        factories.put("ShortestDistance", ShortestDistance::new);
+        factories.put("Sort", Sort::new);
+        factories.put("Rollback", Rollback::new);
+        factories.put("BinaryTreeDFS", BinaryTreeDFS::new);
+        factories.put("Votacao", Votacao::new);
+        factories.put("AStar", AStar::new);
+        factories.put("MonteCarloTreeSearch", MonteCarloTreeSearch::new);
+        factories.putAll(CONFIGURED_FACTORIES);
+        return factories;
+    }
+    
+    // Troca a fábrica de uma estratégia em todas as análises seguintes
+    static void configureStrategy(String name, Supplier<Strategy> factory) {
+        CONFIGURED_FACTORIES.put(name, factory);
+    }
+    
+    // Semente do i-ésimo jogo: independe da ordem de execução, então todas as estratégias
+    // (e as tarefas paralelas) jogam exatamente a mesma sequência de mapas
+    static long gameSeed(long baseSeed, int game) {
+        return new SplittableRandom(baseSeed + game * 0x9E3779B97F4A7C15L).nextLong();
+    }
+    
+    // Semente das estratégias aleatórias no i-ésimo jogo: derivada como a do mapa, mas de outra
+    // sequência, para não correlacionar o sorteio da estratégia com a geração do mapa
+    static long strategySeed(long baseSeed, int game) {
+        return gameSeed(~baseSeed, game);
+    }
+    
+    // Fonte de mapas: recebe o índice do jogo e devolve um mapa novo para ele
+    static IntFunction<Map> seededMaps(long baseSeed) {
+        return game -> new Map(MAP_SIZE, MAP_SIZE, gameSeed(baseSeed, game));
+    }
+    
+    // Joga os mapas de um corpus gravado (ver MapCorpus), repetindo-os se houver menos mapas que jogos
+    static IntFunction<Map> corpusMaps(MapCorpus corpus) {
+        return game -> corpus.load(game % corpus.size());
+    }
+    
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategies(long baseSeed) {
+        return analyzeStrategies(baseSeed, false);
+    }
+    
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategies(long baseSeed, boolean skipUnreachable) {
+        return analyzeStrategies(seededMaps(baseSeed), DEFAULT_NUMBER_OF_GAMES, skipUnreachable, baseSeed, null, null);
+    }
+    
+    // Sem semente, as estratégias aleatórias são semeadas a partir de DEFAULT_STRATEGY_SEED
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategies(IntFunction<Map> maps, boolean skipUnreachable) {
+        return analyzeStrategies(maps, skipUnreachable, null);
+    }
+    
+    // Com journal não nulo, cada episódio é gravado no diário com o nome da estratégia
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategies(IntFunction<Map> maps, boolean skipUnreachable, GameJournal journal) {
+        return analyzeStrategies(maps, DEFAULT_NUMBER_OF_GAMES, skipUnreachable, DEFAULT_STRATEGY_SEED, journal, null);
+    }
+    
+    // Com output não nulo, cada resultado também é emitido assim que o jogo termina.
+    // As estratégias aleatórias de cada jogo são semeadas a partir de baseSeed (ver strategySeed).
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategies(IntFunction<Map> maps, int games, boolean skipUnreachable,
+                                                                           long baseSeed, GameJournal journal, ResultStream output) {
         java.util.Map<String, StrategyMetrics> results = new HashMap<>();
+        TreasureReachability reachability = new TreasureReachability(games);
         
-        for (java.util.Map.Entry<String, Strategy> entry : strategies.entrySet()) {
+        for (java.util.Map.Entry<String, Supplier<Strategy>> entry : strategyFactories().entrySet()) {
             String strategyName = entry.getKey();
-            Strategy strategy = entry.getValue();
+            Strategy strategy = entry.getValue().get();
             
-            StrategyMetrics metrics = analyzeStrategy(strategy);
+            StrategyMetrics metrics = analyzeStrategy(strategyName, strategy, maps, games, skipUnreachable, reachability, baseSeed, journal, output);
             results.put(strategyName, metrics);
         }
         
         return results;
     }
     
-    private static StrategyMetrics analyzeStrategy(Strategy strategy) {
-        StrategyMetrics metrics = new StrategyMetrics();
+    // Distribui a matriz estratégia x jogo entre todos os núcleos. Cada jogo recebe
+    // uma instância nova da estratégia e cada tarefa acumula suas próprias métricas,
+    // que são somadas no join sem nenhum estado compartilhado.
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesParallel(long baseSeed) {
+        return analyzeStrategiesParallel(baseSeed, false);
+    }
+    
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesParallel(long baseSeed, boolean skipUnreachable) {
+        return analyzeStrategiesParallel(seededMaps(baseSeed), DEFAULT_NUMBER_OF_GAMES, skipUnreachable, baseSeed, null, null);
+    }
+    
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesParallel(IntFunction<Map> maps, boolean skipUnreachable) {
+        return analyzeStrategiesParallel(maps, skipUnreachable, null);
+    }
+    
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesParallel(IntFunction<Map> maps, boolean skipUnreachable, GameJournal journal) {
+        return analyzeStrategiesParallel(maps, DEFAULT_NUMBER_OF_GAMES, skipUnreachable, DEFAULT_STRATEGY_SEED, journal, null);
+    }
+    
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesParallel(IntFunction<Map> maps, int games, boolean skipUnreachable,
+                                                                                   long baseSeed, GameJournal journal, ResultStream output) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        java.util.Map<String, ForkJoinTask<StrategyMetrics>> tasks = new HashMap<>();
+        TreasureReachability reachability = new TreasureReachability(games);
         
-        for (int i = 0; i < NUMBER_OF_GAMES; i++) {
-            GameResult result = playGame(strategy);
-            
-            metrics.totalSteps += result.steps;
+        for (java.util.Map.Entry<String, Supplier<Strategy>> entry : strategyFactories().entrySet()) {
+            tasks.put(entry.getKey(), pool.submit(new GameRangeTask(entry.getKey(), entry.getValue(), maps, skipUnreachable, reachability,
+                baseSeed, journal, output, new DecisionStats(), 0, games)));
+        }
+        
+        java.util.Map<String, StrategyMetrics> results = new HashMap<>();
+        for (java.util.Map.Entry<String, ForkJoinTask<StrategyMetrics>> entry : tasks.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().join());
+        }
+        
+        return results;
+    }
+    
+    // Estratégias com kernel em lote (ver BatchSimulator) rodam no motor em lote, as demais jogo a jogo.
+    // O sorteio de Sort no lote usa baseSeed, então o resultado não é o mesmo da versão jogo a jogo.
+    // Todos os mapas da fonte devem ter sizeX x sizeY células. Os kernels em lote não passam por
+    // CustomGame, então não há diário: gravar só as estratégias jogo a jogo daria um diário incompleto
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesBatch(IntFunction<Map> maps, int sizeX, int sizeY,
+                                                                                boolean skipUnreachable, long baseSeed) {
+        return analyzeStrategiesBatch(maps, sizeX, sizeY, DEFAULT_NUMBER_OF_GAMES, skipUnreachable, baseSeed, null);
+    }
+    
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesBatch(IntFunction<Map> maps, int sizeX, int sizeY, int games,
+                                                                                boolean skipUnreachable, long baseSeed, ResultStream output) {
+        java.util.Map<String, StrategyMetrics> results = new HashMap<>();
+        TreasureReachability reachability = new TreasureReachability(games);
+        
+        for (java.util.Map.Entry<String, Supplier<Strategy>> entry : strategyFactories().entrySet()) {
+            String strategyName = entry.getKey();
+            if (BatchSimulator.supports(strategyName)) {
+                results.put(strategyName, BatchSimulator.simulate(strategyName, maps, sizeX, sizeY, games, skipUnreachable, baseSeed, output));
+            } else {
+                results.put(strategyName, analyzeStrategy(strategyName, entry.getValue().get(), maps, games, skipUnreachable, reachability,
+                    baseSeed, null, output));
+            }
+        }
+        
+        return results;
+    }
+    
+    // Teste sequencial: joga rodadas de ADAPTIVE_ROUND_GAMES jogos só com as estratégias ainda em
+    // aberto. Uma estratégia para quando o intervalo de Wilson da sua taxa de vitória não cruza
+    // o de nenhuma outra, ou seja, sua posição no ranking já está decidida; quando o intervalo de
+    // 95% fica mais estreito que ADAPTIVE_TIE_WIDTH (empate com outra estratégia); ou ao chegar a
+    // maxGames. Todas jogam os mesmos mapas na mesma ordem, então as comparações são pareadas.
+    // O ranking é só pela taxa de vitória: o intervalo de passos médios é exibido, mas não decide
+    // a parada. Como a separação é verificada depois de cada rodada, um intervalo de 95% pararia
+    // cedo demais por acaso; o teste usa intervalos alargados por Bonferroni (ver adaptiveZ).
+    public static java.util.Map<String, StrategyMetrics> analyzeStrategiesAdaptive(IntFunction<Map> maps, int maxGames, boolean skipUnreachable,
+                                                                                   long baseSeed, boolean parallel, GameJournal journal,
+                                                                                   ResultStream output) {
+        java.util.Map<String, Supplier<Strategy>> factories = strategyFactories();
+        java.util.Map<String, StrategyMetrics> results = new HashMap<>();
+        java.util.Map<String, Strategy> strategies = new HashMap<>();
+        TreasureReachability reachability = new TreasureReachability(maxGames);
+        Set<String> open = new HashSet<>(factories.keySet());
+        for (String name : open) {
+            results.put(name, new StrategyMetrics());
+            strategies.put(name, factories.get(name).get());
+        }
+        
+        double z = adaptiveZ(maxGames);
+        int from = 0;
+        while (!open.isEmpty() && from < maxGames) {
+            int to = Math.min(from + ADAPTIVE_ROUND_GAMES, maxGames);
+            java.util.Map<String, ForkJoinTask<StrategyMetrics>> tasks = new HashMap<>();
+            for (String name : open) {
+                StrategyMetrics metrics = results.get(name);
+                if (parallel) {
+                    tasks.put(name, ForkJoinPool.commonPool().submit(new GameRangeTask(name, factories.get(name), maps, skipUnreachable,
+                        reachability, baseSeed, journal, output, metrics.getDecisionStats(), from, to)));
+                } else {
+                    Strategy strategy = strategies.get(name);
+                    for (int i = from; i < to; i++) {
+                        metrics.record(playGame(name, i, strategy, maps.apply(i), skipUnreachable, reachability, baseSeed, journal,
+                            metrics.getDecisionStats(), output));
+                    }
+                }
+            }
+            for (java.util.Map.Entry<String, ForkJoinTask<StrategyMetrics>> entry : tasks.entrySet()) {
+                results.get(entry.getKey()).merge(entry.getValue().join());
+            }
+            from = to;
             
-            if (result.finalState != null && result.finalState.equals(TreasureChest.CHEST_TRESURE_CHARACTER)) {
-                metrics.victories++;
-                metrics.treasureFound++;
-            } else if (result.finalState != null && result.finalState.equals(TreasureChest.CHEST_TRAP_CHARACTER)) {
-                metrics.falsePositives++;
-            } else if (result.wasReachable) {
-                metrics.falseNegatives++;
+            if (from >= ADAPTIVE_MIN_GAMES) {
+                open.removeIf(name -> isRankingSettled(name, results, z));
+            }
+        }
+        return results;
+    }
+    
+    // Quantil dos intervalos de separação: ADAPTIVE_ALPHA dividido entre as verificações possíveis,
+    // uma por rodada a partir de ADAPTIVE_MIN_GAMES. Com 100 000 jogos são 999 verificações, z ~ 4,06
+    static double adaptiveZ(int maxGames) {
+        int looks = Math.max(1, (maxGames - ADAPTIVE_MIN_GAMES + ADAPTIVE_ROUND_GAMES - 1) / ADAPTIVE_ROUND_GAMES + 1);
+        return normalQuantile(1 - ADAPTIVE_ALPHA / (2.0 * looks));
+    }
+    
+    // Inversa da normal padrão pela aproximação racional de Acklam (erro relativo < 1.2e-9)
+    static double normalQuantile(double p) {
+        if (p <= 0.0 || p >= 1.0) {
+            throw new IllegalArgumentException("Probabilidade fora de (0, 1): " + p);
+        }
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+                - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+                / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+                + 3.754408661907416e+00) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+            + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+            / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+            + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+    }
+    
+    private static boolean isRankingSettled(String name, java.util.Map<String, StrategyMetrics> results, double z) {
+        // Largura de 95%: é um critério de precisão, não um teste, e não precisa da correção
+        double[] precision = results.get(name).getVictoryRateInterval(Z_95);
+        if (precision[1] - precision[0] < ADAPTIVE_TIE_WIDTH) {
+            return true;
+        }
+        double[] interval = results.get(name).getVictoryRateInterval(z);
+        for (java.util.Map.Entry<String, StrategyMetrics> entry : results.entrySet()) {
+            if (entry.getKey().equals(name)) {
+                continue;
+            }
+            double[] other = entry.getValue().getVictoryRateInterval(z);
+            if (interval[0] <= other[1] && other[0] <= interval[1]) {
+                return false;
             }
         }
+        return true;
+    }
+    
+    private static StrategyMetrics analyzeStrategy(String name, Strategy strategy, IntFunction<Map> maps, int games, boolean skipUnreachable,
+                                                   TreasureReachability reachability, long baseSeed, GameJournal journal, ResultStream output) {
+        StrategyMetrics metrics = new StrategyMetrics();
+        
+        for (int i = 0; i < games; i++) {
+            metrics.record(playGame(name, i, strategy, maps.apply(i), skipUnreachable, reachability, baseSeed, journal, metrics.getDecisionStats(), output));
+        }
         
         return metrics;
     }
     
-    private static GameResult playGame(Strategy strategy) {
-        CustomGame game = new CustomGame(strategy);
-        return game.runAndAnalyze();
+    private static class GameRangeTask extends RecursiveTask<StrategyMetrics> {
+        private static final long serialVersionUID = 1L;
+        
+        private final String name;
+        private final transient Supplier<Strategy> factory;
+        private final transient IntFunction<Map> maps;
+        private final boolean skipUnreachable;
+        private final transient TreasureReachability reachability;
+        private final long baseSeed;
+        private final transient GameJournal journal;
+        private final transient ResultStream output;
+        private final transient DecisionStats stats;
+        private final int from;
+        private final int to;
+        
+        GameRangeTask(String name, Supplier<Strategy> factory, IntFunction<Map> maps, boolean skipUnreachable,
+                      TreasureReachability reachability, long baseSeed,
+                      GameJournal journal, ResultStream output, DecisionStats stats, int from, int to) {
+            this.name = name;
+            this.factory = factory;
+            this.maps = maps;
+            this.skipUnreachable = skipUnreachable;
+            this.reachability = reachability;
+            this.baseSeed = baseSeed;
+            this.journal = journal;
+            this.output = output;
+            this.stats = stats;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected StrategyMetrics compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                StrategyMetrics metrics = new StrategyMetrics(stats);
+                for (int i = from; i < to; i++) {
+                    metrics.record(playGame(name, i, factory.get(), maps.apply(i), skipUnreachable, reachability, baseSeed, journal, stats, output));
+                }
+                return metrics;
+            }
+            
+            int middle = (from + to) >>> 1;
+            GameRangeTask left = new GameRangeTask(name, factory, maps, skipUnreachable, reachability, baseSeed, journal, output, stats, from, middle);
+            GameRangeTask right = new GameRangeTask(name, factory, maps, skipUnreachable, reachability, baseSeed, journal, output, stats, middle, to);
+            left.fork();
+            StrategyMetrics metrics = right.compute();
+            metrics.merge(left.join());
+            return metrics;
+        }
     }
     
-    public static void main(String[] args) {
-        java.util.Map<String, StrategyMetrics> results = analyzeStrategies();
+    // Reinicia a estratégia com a semente do jogo: mesma semente base, mesmas decisões, em série
+    // ou em paralelo
+    private static GameResult playGame(String name, int index, Strategy strategy, Map map, boolean skipUnreachable,
+                                       TreasureReachability reachability, long baseSeed, GameJournal journal, DecisionStats stats, ResultStream output) {
+        strategy.reset(strategySeed(baseSeed, index));
+        // A busca conta rollouts desde a criação; a partida soma às estatísticas só a diferença
+        MonteCarloTreeSearch search = strategy instanceof MonteCarloTreeSearch ? (MonteCarloTreeSearch) strategy : null;
+        long rollouts = search == null ? 0 : search.getRollouts();
+        long searchNanos = search == null ? 0 : search.getSearchNanos();
+        CustomGame game = new CustomGame(strategy, map, skipUnreachable, reachability.isReachable(index, map), journal, name, stats);
+        GameResult result = game.runAndAnalyze();
+        if (search != null) {
+            stats.addSearch(search.getRollouts() - rollouts, search.getSearchNanos() - searchNanos, search.getWorkers());
+        }
+        if (output != null) {
+            output.emit(name, index, result);
+        }
+        return result;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        boolean parallel = false;
+        boolean batch = false;
+        boolean adaptive = false;
+        Path corpusFile = null;
+        Path journalFile = null;
+        Path outputFile = null;
+        int games = -1;
+        boolean skipUnreachable = false;
+        long baseSeed = System.nanoTime();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--parallel")) {
+                parallel = true;
+            } else if (args[i].equals("--adaptive")) {
+                adaptive = true;
+            } else if (args[i].equals("--batch")) {
+                batch = true;
+            } else if (args[i].equals("--skip-unreachable")) {
+                skipUnreachable = true;
+            } else if (args[i].equals("--mcts-time-budget-ms") && i + 1 < args.length) {
+                // MonteCarloTreeSearch busca por tempo em vez de por número de iterações
+                long budgetNanos = Long.parseLong(args[++i]) * 1_000_000L;
+                configureStrategy("MonteCarloTreeSearch",
+                    () -> MonteCarloTreeSearch.withTimeBudget(budgetNanos, ForkJoinPool.getCommonPoolParallelism()));
+            } else if (args[i].equals("--mcts-iterations") && i + 1 < args.length) {
+                // Orçamento maior (ou menor) que o padrão; a semente é trocada a cada jogo por playGame
+                int iterations = Integer.parseInt(args[++i]);
+                configureStrategy("MonteCarloTreeSearch",
+                    () -> new MonteCarloTreeSearch(iterations, ForkJoinPool.getCommonPoolParallelism(), 0L));
+            } else if (args[i].equals("--parallel-votes")) {
+                // Votacao roda os votantes caros ao mesmo tempo em cada decisão
+                configureStrategy("Votacao", () -> new Votacao(true));
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                baseSeed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--corpus") && i + 1 < args.length) {
+                corpusFile = Path.of(args[++i]);
+            } else if (args[i].equals("--journal") && i + 1 < args.length) {
+                journalFile = Path.of(args[++i]);
+            } else if (args[i].equals("--output") && i + 1 < args.length) {
+                outputFile = Path.of(args[++i]);
+            } else if (args[i].equals("--games") && i + 1 < args.length) {
+                games = Integer.parseInt(args[++i]);
+            }
+        }
         
-        System.out.println("Strategy Performance Analysis (100 games per strategy):\n");
+        if (batch && adaptive) {
+            throw new IllegalArgumentException("--adaptive não funciona com --batch: o teste sequencial joga rodada a rodada");
+        }
+        if (batch && journalFile != null) {
+            throw new IllegalArgumentException("--journal não funciona com --batch: os kernels em lote não gravam episódios");
+        }
+        if (batch && parallel) {
+            throw new IllegalArgumentException("--parallel não funciona com --batch: o motor em lote roda numa thread só");
+        }
+        if (games < 0) {
+            games = adaptive ? ADAPTIVE_MAX_GAMES : DEFAULT_NUMBER_OF_GAMES;
+        }
+        
+        java.util.Map<String, StrategyMetrics> results;
+        // Recursos nulos são ignorados pelo try-with-resources
+        try (MapCorpus corpus = corpusFile == null ? null : MapCorpus.open(corpusFile);
+             GameJournal journal = journalFile == null ? null : GameJournal.create(journalFile);
+             ResultStream output = outputFile == null ? null : ResultStream.open(outputFile, true)) {
+            IntFunction<Map> maps = corpus == null ? seededMaps(baseSeed) : corpusMaps(corpus);
+            if (adaptive) {
+                results = analyzeStrategiesAdaptive(maps, games, skipUnreachable, baseSeed, parallel, journal, output);
+            } else if (batch) {
+                if (corpus != null && !corpus.hasUniformSize()) {
+                    throw new IllegalArgumentException("--batch exige um corpus com todos os mapas do mesmo tamanho: " + corpusFile);
+                }
+                int sizeX = corpus == null ? MAP_SIZE : corpus.getSizeX(0);
+                int sizeY = corpus == null ? MAP_SIZE : corpus.getSizeY(0);
+                results = analyzeStrategiesBatch(maps, sizeX, sizeY, games, skipUnreachable, baseSeed, output);
+            } else if (parallel) {
+                results = analyzeStrategiesParallel(maps, games, skipUnreachable, baseSeed, journal, output);
+            } else {
+                results = analyzeStrategies(maps, games, skipUnreachable, baseSeed, journal, output);
+            }
+            if (journal != null) {
+                System.out.println(journal.getEpisodeCount() + " episodes recorded in " + journalFile);
+            }
+        }
+        String source = corpusFile == null ? "seed " + baseSeed : "corpus " + corpusFile;
+        
+        String gameCount = adaptive ? "adaptive, up to " + games : String.valueOf(games);
+        System.out.println("Strategy Performance Analysis (" + gameCount + " games per strategy, " + source + "):\n");
+        if (adaptive) {
+            System.out.printf("Stopping rule: victory rate intervals with z = %.2f (Bonferroni over rounds); steps are not used\n\n",
+                adaptiveZ(games));
+        }
         
         for (java.util.Map.Entry<String, StrategyMetrics> entry : results.entrySet()) {
             String strategyName = entry.getKey();
             StrategyMetrics metrics = entry.getValue();
             
+            double[] stepsInterval = metrics.getAverageStepsInterval(Z_95);
+            double[] victoryInterval = metrics.getVictoryRateInterval(Z_95);
+            
             System.out.println("Strategy: " + strategyName);
-            System.out.printf("Average Steps: %.2f\n", metrics.getAverageSteps());
-            System.out.printf("Victory Rate: %.2f%%\n", metrics.getVictoryRate() * 100);
+            System.out.println("Games Played: " + metrics.getGames());
+            System.out.printf("Average Steps: %.2f (95%% CI %.2f - %.2f, sd %.2f)\n", metrics.getAverageSteps(),
+                stepsInterval[0], stepsInterval[1], metrics.getStepsStandardDeviation());
+            System.out.printf("Victory Rate: %.2f%% (95%% CI %.2f%% - %.2f%%)\n", metrics.getVictoryRate() * 100,
+                victoryInterval[0] * 100, victoryInterval[1] * 100);
             System.out.printf("Precision: %.2f%%\n", metrics.getPrecision() * 100);
             System.out.printf("Recall: %.2f%%\n", metrics.getRecall() * 100);
             System.out.println("Total Victories: " + metrics.victories);
-            System.out.println("----------------------------------------\n");
-        }
-    }
-}
-
-class CustomGame {
-    private Map map;
-    private Player player;
-    private int steps;
-    private String finalState;
-    private boolean treasureReachable;
-    
-    public CustomGame(Strategy strategy) {
-        this.map = new Map(8, 8);
-        this.player = new Player(strategy);
-        this.steps = 0;
-        this.treasureReachable = checkTreasureReachability();
-    }
-    
-    private boolean checkTreasureReachability() {
-        // Simplified check - you might want to implement proper pathfinding
-        return true;
-    }
-    
-    public StrategyAnalyzer.GameResult runAndAnalyze() {
-        while (true) {
-            Point nextPoint = this.player.evaluatePossbileNextStep(map);
-            if (nextPoint == null) {
-                return new StrategyAnalyzer.GameResult(null, steps, treasureReachable);
+            DecisionStats stats = metrics.getDecisionStats();
+            LatencyHistogram latency = stats.getDecisionLatency();
+            // O motor em lote não mede decisões individuais
+            if (latency.getCount() > 0) {
+                System.out.printf("Decision Latency p50/p99/p999: %.2f / %.2f / %.2f us (max %.2f us)\n",
+                    latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                    latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3);
             }
-            
-            steps++;
-            String space = this.map.get(nextPoint);
-            
-            if (space != null && space.equals(TreasureChest.CHARACTER)) {
-                this.map.openTreasureChest(nextPoint);
-                // Store the final state (treasure, trap, or empty)
-                finalState = this.map.get(nextPoint);
-                return new StrategyAnalyzer.GameResult(finalState, steps, treasureReachable);
+            System.out.println("Steps: " + stats.getSteps() + ", Chests Opened: " + stats.getChestOpenings()
+                + ", Timeouts: " + stats.getTimeouts());
+            if (stats.getBatchRunNanos() > 0) {
+                System.out.printf("Batch Time: maps %.1f ms, episodes %.1f ms\n", stats.getMapLoadNanos() / 1e6,
+                    stats.getBatchRunNanos() / 1e6);
             }
-            
-            this.map.moveRobot(nextPoint);
-            
-            // Optional: Add maximum steps limit to prevent infinite loops
-            if (steps > 100) {
-                return new StrategyAnalyzer.GameResult(null, steps, treasureReachable);
+            if (stats.getRollouts() > 0) {
+                System.out.printf("Rollouts: %d, %.0f/s (%.0f/s per worker)\n", stats.getRollouts(),
+                    stats.getRolloutsPerSecond(), stats.getRolloutsPerSecondPerWorker());
+            }
+            if (metrics.skippedGames > 0) {
+                System.out.println("Skipped (treasure unreachable): " + metrics.skippedGames);
             }
+            System.out.println("----------------------------------------\n");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,171 @@
+package main.analysis;
+
+import main.game.DecisionStats;
+import main.game.Player;
+import main.game.map.Map;
+import main.game.map.MapGenerator;
+import main.strategies.MonteCarloTreeSearch;
+import main.strategies.Strategy;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Microbenchmarks de decisão, geração de mapa, episódio completo e busca (rollouts/s).
+// Cada medida roda um aquecimento, depois mede latência média, vazão e bytes
+// alocados por operação (contador de alocação da thread, como no perfil GC do JMH).
+public class StrategyBenchmark {
+    private static final int[] DEFAULT_SIZES = {8, 64, 512, 4096};
+    private static final long SEED = 42L;
+    private static final long WARMUP_NANOS = 300_000_000L;
+    private static final long MEASUREMENT_NANOS = 1_000_000_000L;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Impedem que o JIT elimine o trabalho medido
+    private static volatile Object sink;
+    private static volatile long primitiveSink;
+
+    public static class Result {
+        final String name;
+        final long operations;
+        final double nanosPerOperation;
+        final double bytesPerOperation;
+
+        Result(String name, long operations, double nanosPerOperation, double bytesPerOperation) {
+            this.name = name;
+            this.operations = operations;
+            this.nanosPerOperation = nanosPerOperation;
+            this.bytesPerOperation = bytesPerOperation;
+        }
+
+        public double getOperationsPerSecond() {
+            return 1e9 / nanosPerOperation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %12.1f ns/op %14.1f ops/s %12.1f B/op (%d ops)",
+                name, nanosPerOperation, getOperationsPerSecond(), bytesPerOperation, operations);
+        }
+    }
+
+    public static Result measure(String name, LongSupplier operation) {
+        run(operation, WARMUP_NANOS);
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long operations = run(operation, MEASUREMENT_NANOS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(name, operations, (double) elapsed / operations, (double) allocated / operations);
+    }
+
+    private static long run(LongSupplier operation, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        long operations = 0;
+        // Lotes crescentes para que System.nanoTime não domine operações curtas
+        int batch = 1;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < batch; i++) {
+                primitiveSink = operation.getAsLong();
+            }
+            operations += batch;
+            if (batch < 1024) {
+                batch <<= 1;
+            }
+        }
+        return operations;
+    }
+
+    private static long consume(Object result) {
+        sink = result;
+        return 0;
+    }
+
+    public static void benchmarkDecisions(int size) {
+        for (java.util.Map.Entry<String, Supplier<Strategy>> entry : StrategyAnalyzer.strategyFactories().entrySet()) {
+            Map map = new Map(size, size, SEED);
+            Player player = new Player(entry.getValue().get());
+            System.out.println(measure("decision " + entry.getKey() + " " + size + "x" + size,
+                () -> player.evaluatePossibleNextCell(map)));
+        }
+    }
+
+    public static void benchmarkMapGeneration(int size) {
+        long[] seed = {SEED};
+        System.out.println(measure("new Map " + size + "x" + size, () -> consume(new Map(size, size, seed[0]++))));
+        MapGenerator generator = MapGenerator.withDensities(size, size, 0.05, 0.01);
+        System.out.println(measure("new Map (densities) " + size + "x" + size,
+            () -> consume(new Map(size, size, seed[0]++, generator))));
+    }
+
+    public static void benchmarkEpisodes(int size) {
+        for (java.util.Map.Entry<String, Supplier<Strategy>> entry : StrategyAnalyzer.strategyFactories().entrySet()) {
+            Supplier<Strategy> factory = entry.getValue();
+            long[] seed = {SEED};
+            System.out.println(measure("episode " + entry.getKey() + " " + size + "x" + size,
+                () -> consume(new CustomGame(factory.get(), new Map(size, size, seed[0]++)).runAndAnalyze())));
+        }
+    }
+
+    // Vazão da busca de MonteCarloTreeSearch em rollouts por segundo, jogando episódios com o
+    // orçamento padrão de iterações e com orçamento de 1 ms por decisão
+    public static void benchmarkSearch(int size) {
+        int workers = ForkJoinPool.getCommonPoolParallelism();
+        benchmarkSearch("MonteCarloTreeSearch " + size + "x" + size, new MonteCarloTreeSearch(), size);
+        benchmarkSearch("MonteCarloTreeSearch 1ms " + size + "x" + size, MonteCarloTreeSearch.withTimeBudget(1_000_000L, workers), size);
+    }
+
+    private static void benchmarkSearch(String name, MonteCarloTreeSearch search, int size) {
+        long[] seed = {SEED};
+        measure(name, () -> {
+            search.reset();
+            return consume(new CustomGame(search, new Map(size, size, seed[0]++)).runAndAnalyze());
+        });
+        System.out.printf("%-40s %12.0f rollouts/s %12.0f rollouts/s per worker (%d workers)\n",
+            "search " + name, search.getRolloutsPerSecond(), search.getRolloutsPerSecondPerWorker(), search.getWorkers());
+    }
+
+    // Vazão do motor em lote, em episódios por segundo, incluindo a geração dos mapas
+    public static void benchmarkBatch(int size, int games) {
+        for (String strategy : new String[] {"ShortestDistance", "Sort"}) {
+            IntFunction<Map> maps = game -> new Map(size, size, SEED + game);
+            BatchSimulator.simulate(strategy, maps, size, size, games, false, SEED);
+            long start = System.nanoTime();
+            DecisionStats stats = BatchSimulator.simulate(strategy, maps, size, size, games, false, SEED).getDecisionStats();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-40s %12.0f episodes/s (%d episodes)\n",
+                "batch " + strategy + " " + size + "x" + size, games / seconds, games);
+            // Tempos somados entre os lotes: quanto do total é gerar e copiar mapas, e a vazão só dos episódios
+            long loadNanos = stats.getMapLoadNanos();
+            long runNanos = stats.getBatchRunNanos();
+            System.out.printf("%-40s %12.0f episodes/s (%.0f%% of batch time loading maps)\n",
+                "  episodes only, per thread", games * 1e9 / runNanos, 100.0 * loadNanos / (loadNanos + runNanos));
+        }
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int size : sizes) {
+            benchmarkDecisions(size);
+            benchmarkMapGeneration(size);
+            benchmarkEpisodes(size);
+            benchmarkSearch(size);
+            benchmarkBatch(size, Math.max(1, (1 << 26) / (size * size)));
+            System.out.println("----------------------------------------");
+        }
+    }
+}
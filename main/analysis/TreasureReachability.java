@@ -0,0 +1,71 @@
+package main.analysis;
+
+import main.game.map.Map;
+import main.game.map.Tile;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Se o tesouro de cada mapa pode ser alcançado, com as mesmas regras de movimento da partida:
+// o robô vai para qualquer vizinho que o Player oferece, inclusive rochas e monstros (pisar
+// neles só muda o terreno), e abrir qualquer baú encerra a partida, então só os outros baús
+// bloqueiam o caminho. Todas as estratégias jogam os mesmos mapas na mesma ordem, então o
+// resultado é calculado uma vez por índice de jogo e compartilhado, inclusive entre tarefas paralelas.
+final class TreasureReachability {
+    private static final int UNKNOWN = 0;
+    private static final int REACHABLE = 1;
+    private static final int UNREACHABLE = 2;
+
+    private final AtomicIntegerArray known;
+
+    TreasureReachability(int games) {
+        this.known = new AtomicIntegerArray(Math.max(games, 0));
+    }
+
+    // Duas tarefas podem calcular o mesmo índice ao mesmo tempo; o resultado é o mesmo
+    boolean isReachable(int game, Map map) {
+        if (game >= this.known.length()) {
+            return isReachable(map);
+        }
+        int state = this.known.get(game);
+        if (state == UNKNOWN) {
+            state = isReachable(map) ? REACHABLE : UNREACHABLE;
+            this.known.set(game, state);
+        }
+        return state == REACHABLE;
+    }
+
+    // Flood fill a partir do robô
+    static boolean isReachable(Map map) {
+        BitSet seen = new BitSet(Math.toIntExact(map.getCellCount()));
+        int[] stack = new int[16];
+        int[] neighbours = new int[4];
+        int size = 0;
+
+        stack[size++] = map.getRobotCell();
+        seen.set(map.getRobotCell());
+        while (size > 0) {
+            int cell = stack[--size];
+            int count = map.neighbourCells(cell, neighbours);
+            for (int i = 0; i < count; i++) {
+                int next = neighbours[i];
+                if (seen.get(next)) {
+                    continue;
+                }
+                seen.set(next);
+                if (map.getTile(next) == Tile.TREASURE_CHEST) {
+                    if (map.getChestContent(next) == Tile.CHEST_TREASURE) {
+                        return true;
+                    }
+                } else {
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = next;
+                }
+            }
+        }
+        return false;
+    }
+}
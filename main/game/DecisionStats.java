@@ -0,0 +1,100 @@
+package main.game;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Instrumentação de uma estratégia, compartilhada por todas as partidas (inclusive em
+// paralelo): latência de cada decisão em nanossegundos e contadores do jogo
+public class DecisionStats {
+	private final LatencyHistogram decisionLatency = new LatencyHistogram();
+	private final LongAdder steps = new LongAdder();
+	private final LongAdder chestOpenings = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	// Só para estratégias de busca por simulação (MonteCarloTreeSearch): rollouts feitos, tempo
+	// de relógio gasto buscando e esse tempo multiplicado pelos trabalhadores
+	private final LongAdder rollouts = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+	private final LongAdder workerNanos = new LongAdder();
+	// Só para o motor em lote (BatchSimulator): tempo carregando mapas nas grades e tempo
+	// avançando os episódios, somados entre os lotes
+	private final LongAdder mapLoadNanos = new LongAdder();
+	private final LongAdder batchRunNanos = new LongAdder();
+
+	public void recordDecision(long nanos) {
+		this.decisionLatency.record(nanos);
+	}
+
+	public void recordStep() {
+		this.steps.increment();
+	}
+
+	public void recordChestOpening() {
+		this.chestOpenings.increment();
+	}
+
+	// Partida encerrada pelo limite de passos
+	public void recordTimeout() {
+		this.timeouts.increment();
+	}
+
+	// Versões em bloco, para quem conta vários eventos de uma vez (ver BatchSimulator)
+	public void addSteps(long count) {
+		this.steps.add(count);
+	}
+
+	public void addChestOpenings(long count) {
+		this.chestOpenings.add(count);
+	}
+
+	public void addTimeouts(long count) {
+		this.timeouts.add(count);
+	}
+
+	public void addSearch(long rollouts, long nanos, int workers) {
+		this.rollouts.add(rollouts);
+		this.searchNanos.add(nanos);
+		this.workerNanos.add(nanos * workers);
+	}
+
+	public void addBatch(long loadNanos, long runNanos) {
+		this.mapLoadNanos.add(loadNanos);
+		this.batchRunNanos.add(runNanos);
+	}
+
+	public LatencyHistogram getDecisionLatency() {
+		return this.decisionLatency;
+	}
+
+	public long getSteps() {
+		return this.steps.sum();
+	}
+
+	public long getChestOpenings() {
+		return this.chestOpenings.sum();
+	}
+
+	public long getTimeouts() {
+		return this.timeouts.sum();
+	}
+
+	public long getRollouts() {
+		return this.rollouts.sum();
+	}
+
+	public double getRolloutsPerSecond() {
+		long nanos = this.searchNanos.sum();
+		return nanos == 0 ? 0.0 : getRollouts() * 1e9 / nanos;
+	}
+
+	public double getRolloutsPerSecondPerWorker() {
+		long nanos = this.workerNanos.sum();
+		return nanos == 0 ? 0.0 : getRollouts() * 1e9 / nanos;
+	}
+
+	public long getMapLoadNanos() {
+		return this.mapLoadNanos.sum();
+	}
+
+	public long getBatchRunNanos() {
+		return this.batchRunNanos.sum();
+	}
+}
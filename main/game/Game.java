@@ -1,8 +1,11 @@
 package main.game;
 
+import java.util.SplittableRandom;
+
+import main.game.map.GameJournal;
 import main.game.map.Map;
 import main.game.map.Point;
-import main.game.map.TreasureChest;
+import main.game.map.Tile;
 import main.strategies.Rollback;
 
 public class Game {
@@ -10,10 +13,20 @@ public class Game {
 	private Map map;
 	private Player player;
 	private boolean gameOver;
+	// Opcional: grava a partida para ser reproduzida depois (ver GameReplay)
+	private GameJournal.Recorder recorder;
 
 	public Game() {
-		this.map = new Map(8, 8);
+		this(null);
+	}
+
+	public Game(GameJournal journal) {
+		long seed = new SplittableRandom().nextLong();
+		this.map = new Map(8, 8, seed);
 		this.player = new Player(new Rollback());// FewerObstacles, ShortestDistance, BinaryTreeDFS, Sort, Rollback
+		if (journal != null) {
+			this.recorder = journal.begin("Rollback", seed, this.map);
+		}
 
 		this.gameOver = false;
 	}
@@ -26,9 +39,14 @@ public class Game {
 	        if (nextPoint == null) {
 	            break;
 	        } else {
-	            String space = this.map.get(nextPoint);
-	            if (space != null && space.equals(TreasureChest.CHARACTER)) {
+	            if (this.recorder != null) {
+	                this.recorder.step(this.map.cellIndex(nextPoint));
+	            }
+	            if (this.map.getTile(nextPoint) == Tile.TREASURE_CHEST) {
 	                boolean shouldEnd = this.map.openTreasureChest(nextPoint);
+	                if (this.recorder != null) {
+	                    this.recorder.chest(this.map.getTile(nextPoint), !shouldEnd);
+	                }
 	                if (shouldEnd) {
 	                    gameOver = true;
 	                    this.map.print(); // Imprime o cenário final antes de sair
@@ -44,6 +62,9 @@ public class Game {
 	        this.map.print();
 	        System.out.println();
 	    }
+	    if (this.recorder != null) {
+	        this.recorder.finish();
+	    }
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package main.game;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latências sem travas, com baldes logarítmicos no estilo HDR: cada potência
+// de 2 é dividida em 16 sub-baldes, então o erro relativo de um percentil fica abaixo de 6,25%
+// para qualquer valor, de nanossegundos a horas, com tamanho fixo. Várias threads podem
+// registrar ao mesmo tempo.
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		this.counts.incrementAndGet(bucketOf(value));
+		this.count.increment();
+		this.max.accumulate(value);
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	public long getMax() {
+		return this.max.get();
+	}
+
+	// Maior valor do balde que contém o percentil (0 a 100); 0 se nada foi registrado
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= target) {
+				return Math.min(highestValueOf(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	// Valores abaixo de 16 têm um balde cada; acima, os 4 bits seguintes ao mais alto escolhem o sub-balde
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	private static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long subBucket = SUB_BUCKETS + bucket % SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -1,7 +1,6 @@
 package main.game;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import main.game.map.Map;
@@ -11,29 +10,66 @@ import main.strategies.Strategy;
 public class Player {
 	public static final String CHARACTER = "W";
 	private Strategy strategy;
+	// Reaproveitado a cada passo para não alocar a lista de vizinhos
+	private final int[] possibleNextCells = new int[4];
+	// Opcional: mede a latência de cada decisão da estratégia
+	private final DecisionStats stats;
+
 	public Player(Strategy strategy) {
+		this(strategy, null);
+	}
+
+	public Player(Strategy strategy, DecisionStats stats) {
 		this.strategy = strategy;
+		this.stats = stats;
 	}
 	
 	public Point evaluatePossbileNextStep(Map map) {
-		Point robotLocation = map.getRobotLocation();
-		List<Point> possibleNextSteps = new ArrayList<>();
-		possibleNextSteps.add(new Point(robotLocation.getPositionX(), robotLocation.getPositionY() + 1));
-		possibleNextSteps.add(new Point(robotLocation.getPositionX() + 1, robotLocation.getPositionY()));
-		possibleNextSteps.add(new Point(robotLocation.getPositionX() - 1, robotLocation.getPositionY()));
-		possibleNextSteps.add(new Point(robotLocation.getPositionX(), robotLocation.getPositionY() - 1));
-		
-		List<Point> result = new LinkedList<Point>();
-		// Filter impossible next steps
-		for (int i = 0; i < possibleNextSteps.size(); i++) {
-			Point p = possibleNextSteps.get(i);
-			int[] scenarioSize = map.getScenarioSize();
-			if (p.getPositionX() >= 0 && p.getPositionY() >= 0 &&
-					p.getPositionX() < scenarioSize[0] && p.getPositionY() < scenarioSize[1]) {
-				result.add(p);
+		if (!map.isCellIndexed()) {
+			// Mapas maiores que Integer.MAX_VALUE células só têm a API de Point
+			List<Point> possibleNextSteps = possibleNextSteps(map);
+			if (this.stats == null) {
+				return this.strategy.evaluatePossbileNextStep(possibleNextSteps, map);
 			}
+			long start = System.nanoTime();
+			Point nextPoint = this.strategy.evaluatePossbileNextStep(possibleNextSteps, map);
+			this.stats.recordDecision(System.nanoTime() - start);
+			return nextPoint;
+		}
+		int nextCell = evaluatePossibleNextCell(map);
+		return nextCell < 0 ? null : map.toPoint(nextCell);
+	}
+
+	public int evaluatePossibleNextCell(Map map) {
+		// Filter impossible next steps
+		int count = map.neighbourCells(map.getRobotCell(), this.possibleNextCells);
+		if (this.stats == null) {
+			return this.strategy.evaluatePossibleNextCell(this.possibleNextCells, count, map);
+		}
+		long start = System.nanoTime();
+		int nextCell = this.strategy.evaluatePossibleNextCell(this.possibleNextCells, count, map);
+		this.stats.recordDecision(System.nanoTime() - start);
+		return nextCell;
+	}
+
+	private List<Point> possibleNextSteps(Map map) {
+		Point robotLocation = map.getRobotLocation();
+		int x = robotLocation.getPositionX();
+		int y = robotLocation.getPositionY();
+		List<Point> result = new ArrayList<>(4);
+		if (y + 1 < map.getSizeY()) {
+			result.add(map.pointAt(x, y + 1));
+		}
+		if (x + 1 < map.getSizeX()) {
+			result.add(map.pointAt(x + 1, y));
+		}
+		if (x > 0) {
+			result.add(map.pointAt(x - 1, y));
+		}
+		if (y > 0) {
+			result.add(map.pointAt(x, y - 1));
 		}
-		return this.strategy.evaluatePossbileNextStep(result, map);
+		return result;
 	}
 
 }
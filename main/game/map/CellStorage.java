@@ -0,0 +1,18 @@
+package main.game.map;
+
+// Armazenamento do cenário: um byte (Tile) por célula, endereçado por índice long
+// para que mapas possam passar de Integer.MAX_VALUE células
+public interface CellStorage {
+	public long size();
+
+	public byte get(long cell);
+
+	public void set(long cell, byte tile);
+
+	// Copia length células a partir de cell para dest[offset..]; implementações podem copiar em bloco
+	public default void copyTo(long cell, byte[] dest, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[offset + i] = get(cell + i);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package main.game.map;
+
+import java.util.Arrays;
+
+// Conteúdo escondido dos baús indexado pela célula: tabela de endereçamento aberto com sondagem
+// linear sobre arrays primitivos, sem Point, String nem boxing. Resolver um baú é uma consulta
+// em O(1) esperado, e cabe qualquer quantidade de baús de cada tipo.
+// Chaves long para servir também aos mapas maiores que Integer.MAX_VALUE células.
+final class ChestIndex {
+	private static final long FREE = -1L;
+
+	private long[] cells;
+	private byte[] contents;
+	private int size;
+
+	ChestIndex() {
+		this.cells = new long[8];
+		this.contents = new byte[8];
+		Arrays.fill(this.cells, FREE);
+	}
+
+	// Registra ou substitui o conteúdo do baú em cell
+	void put(long cell, byte content) {
+		if ((this.size + 1) * 2 > this.cells.length) {
+			resize(this.cells.length * 2);
+		}
+		int slot = slot(cell);
+		if (this.cells[slot] == FREE) {
+			this.cells[slot] = cell;
+			this.size++;
+		}
+		this.contents[slot] = content;
+	}
+
+	// Conteúdo do baú em cell, ou Tile.NONE se não houver baú ali
+	byte get(long cell) {
+		int slot = slot(cell);
+		return this.cells[slot] == FREE ? Tile.NONE : this.contents[slot];
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	// Posição de cell na tabela, ou a posição livre onde ela entraria
+	private int slot(long cell) {
+		int mask = this.cells.length - 1;
+		int slot = hash(cell) & mask;
+		while (this.cells[slot] != FREE && this.cells[slot] != cell) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	// Células vizinhas têm índices consecutivos; o embaralhamento evita agrupamentos na sondagem
+	private static int hash(long cell) {
+		long h = cell * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void resize(int capacity) {
+		long[] oldCells = this.cells;
+		byte[] oldContents = this.contents;
+		this.cells = new long[capacity];
+		this.contents = new byte[capacity];
+		Arrays.fill(this.cells, FREE);
+		for (int i = 0; i < oldCells.length; i++) {
+			if (oldCells[i] != FREE) {
+				int slot = slot(oldCells[i]);
+				this.cells[slot] = oldCells[i];
+				this.contents[slot] = oldContents[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package main.game.map;
+
+import java.nio.ByteBuffer;
+
+// Cenário lido de um buffer só de leitura (uma fatia do arquivo mapeado por MapCorpus) até a
+// primeira escrita, quando as células são copiadas para um buffer direto do próprio mapa
+final class CopyOnWriteCellStorage implements CellStorage {
+	private ByteBuffer cells;
+	private boolean copied;
+
+	CopyOnWriteCellStorage(ByteBuffer cells) {
+		this.cells = cells;
+	}
+
+	@Override
+	public long size() {
+		return this.cells.capacity();
+	}
+
+	@Override
+	public byte get(long cell) {
+		return this.cells.get((int) cell);
+	}
+
+	@Override
+	public void set(long cell, byte tile) {
+		if (!this.copied) {
+			int size = this.cells.capacity();
+			this.cells = ByteBuffer.allocateDirect(size).put(0, this.cells, 0, size);
+			this.copied = true;
+		}
+		this.cells.put((int) cell, tile);
+	}
+
+	@Override
+	public void copyTo(long cell, byte[] dest, int offset, int length) {
+		this.cells.get((int) cell, dest, offset, length);
+	}
+}
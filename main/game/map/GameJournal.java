@@ -0,0 +1,261 @@
+package main.game.map;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Diário binário de partidas, opcional, para arquivar episódios e depurar decisões sem
+// rodar as estratégias de novo (ver GameReplay). Formato:
+//
+//   int magic, byte versão, e então um registro por episódio:
+//   varint tamanho, byte origem, varint+UTF-8 rótulo, varint sizeX, varint sizeY,
+//     SEED:     long semente (mapa de new Map(sizeX, sizeY, semente))
+//     SNAPSHOT: varint célula do robô, varint baús, baús x (varint célula, byte conteúdo), byte[] células
+//   varint passos, direções com 2 bits por passo (0 = y+1, 1 = x+1, 2 = x-1, 3 = y-1),
+//   varint baús abertos, cada um (varint passo - passo anterior, byte conteúdo | MOVED)
+//
+// Cada episódio é montado em memória por um Recorder e só entra no arquivo inteiro,
+// então várias threads podem gravar episódios no mesmo diário.
+public class GameJournal implements Closeable {
+	static final int MAGIC = 0x574D4A4C; // "WMJL"
+	static final byte VERSION = 1;
+	static final byte SOURCE_SEED = 0;
+	static final byte SOURCE_SNAPSHOT = 1;
+	// Marca, no byte do baú, que o robô entrou na célula depois de abri-lo
+	static final int MOVED = 0x80;
+
+	static final int DIRECTION_UP = 0;
+	static final int DIRECTION_RIGHT = 1;
+	static final int DIRECTION_LEFT = 2;
+	static final int DIRECTION_DOWN = 3;
+
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private long episodes;
+
+	private GameJournal(FileChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(BUFFER_BYTES);
+	}
+
+	public static GameJournal create(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		GameJournal journal = new GameJournal(channel);
+		journal.buffer.putInt(MAGIC).put(VERSION);
+		return journal;
+	}
+
+	// Episódio sobre um mapa gerado por new Map(sizeX, sizeY, seed): só a semente é gravada
+	public Recorder begin(String label, long seed, Map map) {
+		Recorder recorder = new Recorder(label, SOURCE_SEED, map);
+		recorder.header.putLong(seed);
+		return recorder;
+	}
+
+	// Episódio sobre um mapa qualquer: grava uma cópia do cenário como está agora
+	public Recorder begin(String label, Map map) {
+		Recorder recorder = new Recorder(label, SOURCE_SNAPSHOT, map);
+		Bytes header = recorder.header;
+		int cellCount = (int) map.getCellCount();
+		int chests = 0;
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (map.getTile(cell) == Tile.TREASURE_CHEST) {
+				chests++;
+			}
+		}
+		header.putVarint(map.getRobotCell());
+		header.putVarint(chests);
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (map.getTile(cell) == Tile.TREASURE_CHEST) {
+				header.putVarint(cell);
+				header.put(map.getChestContent(cell));
+			}
+		}
+		for (int cell = 0; cell < cellCount; cell++) {
+			header.put(map.getTile(cell));
+		}
+		return recorder;
+	}
+
+	public synchronized long getEpisodeCount() {
+		return this.episodes;
+	}
+
+	private synchronized void append(Bytes record) throws IOException {
+		Bytes length = new Bytes(5);
+		length.putVarint(record.length);
+		write(length.data, length.length);
+		write(record.data, record.length);
+		this.episodes++;
+	}
+
+	private void write(byte[] data, int length) throws IOException {
+		if (this.buffer.remaining() < length) {
+			flush();
+		}
+		if (length > this.buffer.capacity()) {
+			ByteBuffer large = ByteBuffer.wrap(data, 0, length);
+			while (large.hasRemaining()) {
+				this.channel.write(large);
+			}
+		} else {
+			this.buffer.put(data, 0, length);
+		}
+	}
+
+	private void flush() throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			this.channel.close();
+		}
+	}
+
+	// Grava os passos de um único episódio; não é thread-safe, cada partida tem o seu
+	public class Recorder {
+		private final Bytes header;
+		private final int sizeY;
+		private byte[] directions;
+		private int steps;
+		private final Bytes chests;
+		private int chestCount;
+		private int lastChestStep;
+		private int robotCell;
+		private int previousCell;
+
+		private Recorder(String label, byte source, Map map) {
+			if (!map.isCellIndexed()) {
+				throw new IllegalArgumentException("O diário só grava mapas com até Integer.MAX_VALUE células");
+			}
+			this.sizeY = map.getSizeY();
+			this.robotCell = map.getRobotCell();
+			this.directions = new byte[16];
+			this.chests = new Bytes(16);
+
+			byte[] labelBytes = label.getBytes(StandardCharsets.UTF_8);
+			this.header = new Bytes(32);
+			this.header.put(source);
+			this.header.putVarint(labelBytes.length);
+			this.header.put(labelBytes);
+			this.header.putVarint(map.getSizeX());
+			this.header.putVarint(map.getSizeY());
+		}
+
+		// O robô escolheu a célula vizinha nextCell
+		public void step(int nextCell) {
+			int direction;
+			int delta = nextCell - this.robotCell;
+			if (delta == 1) {
+				direction = DIRECTION_UP;
+			} else if (delta == this.sizeY) {
+				direction = DIRECTION_RIGHT;
+			} else if (delta == -this.sizeY) {
+				direction = DIRECTION_LEFT;
+			} else if (delta == -1) {
+				direction = DIRECTION_DOWN;
+			} else {
+				throw new IllegalArgumentException("Passo para uma célula que não é vizinha: " + nextCell);
+			}
+			if ((this.steps >>> 2) == this.directions.length) {
+				this.directions = Arrays.copyOf(this.directions, this.directions.length * 2);
+			}
+			this.directions[this.steps >>> 2] |= direction << ((this.steps & 3) << 1);
+			this.steps++;
+			this.previousCell = this.robotCell;
+			this.robotCell = nextCell;
+		}
+
+		// O último passo abriu um baú com este conteúdo; robotMoved diz se o robô entrou na célula
+		public void chest(byte content, boolean robotMoved) {
+			int step = this.steps - 1;
+			this.chests.putVarint(step - this.lastChestStep);
+			this.chests.put((byte) (content | (robotMoved ? MOVED : 0)));
+			this.chestCount++;
+			this.lastChestStep = step;
+			if (!robotMoved) {
+				this.robotCell = this.previousCell;
+			}
+		}
+
+		// Fecha o episódio e o acrescenta ao diário
+		public void finish() {
+			Bytes record = new Bytes(this.header.length + ((this.steps + 3) >>> 2) + this.chests.length + 10);
+			record.put(this.header.data, this.header.length);
+			record.putVarint(this.steps);
+			record.put(this.directions, (this.steps + 3) >>> 2);
+			record.putVarint(this.chestCount);
+			record.put(this.chests.data, this.chests.length);
+			try {
+				append(record);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	// Vetor de bytes que cresce sob demanda, com escrita de varints
+	static class Bytes {
+		byte[] data;
+		int length;
+
+		Bytes(int capacity) {
+			this.data = new byte[capacity];
+		}
+
+		void put(byte value) {
+			ensure(1);
+			this.data[this.length++] = value;
+		}
+
+		void put(byte[] values) {
+			put(values, values.length);
+		}
+
+		void put(byte[] values, int count) {
+			ensure(count);
+			System.arraycopy(values, 0, this.data, this.length, count);
+			this.length += count;
+		}
+
+		void putLong(long value) {
+			ensure(Long.BYTES);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.data[this.length++] = (byte) (value >>> shift);
+			}
+		}
+
+		// 7 bits por byte, bit alto indica que há mais bytes
+		void putVarint(int value) {
+			ensure(5);
+			while ((value & ~0x7F) != 0) {
+				this.data[this.length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.length++] = (byte) value;
+		}
+
+		private void ensure(int count) {
+			if (this.length + count > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.length + count, this.data.length * 2));
+			}
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package main.game.map;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Lê um diário gravado por GameJournal, episódio por episódio, e reconstrói o mapa
+// de qualquer passo sem rodar a estratégia de novo
+public class GameReplay implements Closeable {
+	private final DataInputStream input;
+
+	private GameReplay(DataInputStream input) {
+		this.input = input;
+	}
+
+	public static GameReplay open(Path file) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+		try {
+			if (input.readInt() != GameJournal.MAGIC || input.readByte() != GameJournal.VERSION) {
+				throw new IOException("Arquivo não é um diário de partidas: " + file);
+			}
+			return new GameReplay(input);
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	// Próximo episódio, ou null no fim do arquivo
+	public Episode next() throws IOException {
+		int first = this.input.read();
+		if (first < 0) {
+			return null;
+		}
+		int length = first & 0x7F;
+		for (int shift = 7; (first & 0x80) != 0; shift += 7) {
+			first = this.input.read();
+			if (first < 0) {
+				throw new EOFException("Diário truncado");
+			}
+			length |= (first & 0x7F) << shift;
+		}
+		byte[] record = new byte[length];
+		this.input.readFully(record);
+		return new Episode(ByteBuffer.wrap(record));
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.input.close();
+	}
+
+	public static class Episode {
+		private final String label;
+		private final int sizeX;
+		private final int sizeY;
+		private final byte source;
+		private long seed;
+		private int robotCell;
+		private int[] chestCells;
+		private byte[] chestContents;
+		private byte[] tiles;
+		private final int steps;
+		private final byte[] directions;
+		// Baús abertos: passo em que foram abertos e conteúdo (com a marca MOVED)
+		private final int[] openedAt;
+		private final byte[] opened;
+		// Posição da última consulta a getStepCell: célula do robô antes do passo cursorStep e
+		// próximo evento de baú. Percorrer os passos em ordem custa O(1) por passo, não O(passo)
+		private int cursorStep = -1;
+		private int cursorCell;
+		private int cursorChestEvent;
+
+		private Episode(ByteBuffer record) {
+			this.source = record.get();
+			byte[] labelBytes = new byte[readVarint(record)];
+			record.get(labelBytes);
+			this.label = new String(labelBytes, StandardCharsets.UTF_8);
+			this.sizeX = readVarint(record);
+			this.sizeY = readVarint(record);
+
+			if (this.source == GameJournal.SOURCE_SEED) {
+				this.seed = record.getLong();
+			} else {
+				this.robotCell = readVarint(record);
+				int chests = readVarint(record);
+				this.chestCells = new int[chests];
+				this.chestContents = new byte[chests];
+				for (int i = 0; i < chests; i++) {
+					this.chestCells[i] = readVarint(record);
+					this.chestContents[i] = record.get();
+				}
+				this.tiles = new byte[this.sizeX * this.sizeY];
+				record.get(this.tiles);
+			}
+
+			this.steps = readVarint(record);
+			this.directions = new byte[(this.steps + 3) >>> 2];
+			record.get(this.directions);
+
+			int chestEvents = readVarint(record);
+			this.openedAt = new int[chestEvents];
+			this.opened = new byte[chestEvents];
+			int step = 0;
+			for (int i = 0; i < chestEvents; i++) {
+				step += readVarint(record);
+				this.openedAt[i] = step;
+				this.opened[i] = record.get();
+			}
+		}
+
+		public String getLabel() {
+			return this.label;
+		}
+
+		public int getSizeX() {
+			return this.sizeX;
+		}
+
+		public int getSizeY() {
+			return this.sizeY;
+		}
+
+		public int getStepCount() {
+			return this.steps;
+		}
+
+		// Conteúdo do último baú aberto (Tile.CHEST_*), ou Tile.NONE se nenhum foi aberto
+		public byte getOutcome() {
+			return this.opened.length == 0 ? Tile.NONE : (byte) (this.opened[this.opened.length - 1] & ~GameJournal.MOVED);
+		}
+
+		// Célula escolhida no passo step (0 a getStepCount() - 1). Continua de onde a consulta
+		// anterior parou; só volta ao início do episódio se step for anterior a ela
+		public int getStepCell(int step) {
+			if (step < 0 || step >= this.steps) {
+				throw new IndexOutOfBoundsException("Passo fora do episódio: " + step);
+			}
+			if (this.cursorStep < 0 || step < this.cursorStep) {
+				this.cursorStep = 0;
+				this.cursorCell = initialRobotCell();
+				this.cursorChestEvent = 0;
+			}
+			for (; this.cursorStep < step; this.cursorStep++) {
+				int next = this.cursorCell + delta(direction(this.cursorStep));
+				boolean moved = true;
+				if (this.cursorChestEvent < this.openedAt.length && this.openedAt[this.cursorChestEvent] == this.cursorStep) {
+					moved = (this.opened[this.cursorChestEvent] & GameJournal.MOVED) != 0;
+					this.cursorChestEvent++;
+				}
+				if (moved) {
+					this.cursorCell = next;
+				}
+			}
+			return this.cursorCell + delta(direction(step));
+		}
+
+		// Mapa como estava depois dos primeiros step passos; mapAt(0) é o mapa inicial.
+		// Cada chamada monta um mapa novo (o chamador pode alterá-lo) e refaz os passos desde o
+		// início: O(tamanho do mapa + step). Para seguir a partida passo a passo, use getStepCell
+		public Map mapAt(int step) {
+			if (step < 0 || step > this.steps) {
+				throw new IndexOutOfBoundsException("Passo fora do episódio: " + step);
+			}
+			Map map = initialMap();
+			int cell = map.getRobotCell();
+			int chestEvent = 0;
+			for (int i = 0; i < step; i++) {
+				int next = cell + delta(direction(i));
+				boolean moved = true;
+				if (chestEvent < this.openedAt.length && this.openedAt[chestEvent] == i) {
+					map.revealTreasureChest(next);
+					moved = (this.opened[chestEvent] & GameJournal.MOVED) != 0;
+					chestEvent++;
+				}
+				if (moved) {
+					map.moveRobot(next);
+					cell = next;
+				}
+			}
+			return map;
+		}
+
+		private Map initialMap() {
+			if (this.source == GameJournal.SOURCE_SEED) {
+				return new Map(this.sizeX, this.sizeY, this.seed);
+			}
+			HeapCellStorage storage = new HeapCellStorage(this.tiles.length);
+			for (int cell = 0; cell < this.tiles.length; cell++) {
+				storage.set(cell, this.tiles[cell]);
+			}
+			Map map = new Map(this.sizeX, this.sizeY, storage, this.robotCell);
+			for (int i = 0; i < this.chestCells.length; i++) {
+				map.registerTreasureChest(this.chestCells[i], this.chestContents[i]);
+			}
+			return map;
+		}
+
+		// A geração original sempre põe o robô em (0, 0)
+		private int initialRobotCell() {
+			return this.source == GameJournal.SOURCE_SEED ? 0 : this.robotCell;
+		}
+
+		private int direction(int step) {
+			return (this.directions[step >>> 2] >>> ((step & 3) << 1)) & 3;
+		}
+
+		private int delta(int direction) {
+			switch (direction) {
+				case GameJournal.DIRECTION_UP:
+					return 1;
+				case GameJournal.DIRECTION_RIGHT:
+					return this.sizeY;
+				case GameJournal.DIRECTION_LEFT:
+					return -this.sizeY;
+				default:
+					return -1;
+			}
+		}
+	}
+
+	// Sem episódio, lista os episódios do diário. Com episódio, mostra as células escolhidas e
+	// o mapa depois de passo passos (por padrão, o fim da partida)
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Uso: GameReplay <diário> [episódio] [passo]");
+			return;
+		}
+		int wanted = args.length > 1 ? Integer.parseInt(args[1]) : -1;
+		try (GameReplay replay = open(Path.of(args[0]))) {
+			int index = 0;
+			for (Episode episode = replay.next(); episode != null; episode = replay.next(), index++) {
+				if (wanted < 0) {
+					byte outcome = episode.getOutcome();
+					System.out.printf("%d\t%s\t%dx%d\t%d passos\t%s\n", index, episode.getLabel(), episode.getSizeX(),
+						episode.getSizeY(), episode.getStepCount(), outcome == Tile.NONE ? "sem baú" : Tile.toCharacter(outcome));
+				} else if (index == wanted) {
+					int step = args.length > 2 ? Integer.parseInt(args[2]) : episode.getStepCount();
+					System.out.println(episode.getLabel() + ", passo " + step + " de " + episode.getStepCount() + ":");
+					StringBuilder path = new StringBuilder();
+					for (int i = 0; i < step; i++) {
+						int cell = episode.getStepCell(i);
+						path.append(i == 0 ? "" : " ").append(cell / episode.getSizeY()).append(',').append(cell % episode.getSizeY());
+					}
+					System.out.println(path);
+					episode.mapAt(step).print();
+					return;
+				}
+			}
+		}
+		if (wanted >= 0) {
+			System.out.println("Episódio não encontrado: " + wanted);
+		}
+	}
+
+	private static int readVarint(ByteBuffer buffer) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package main.game.map;
+
+public class HeapCellStorage implements CellStorage {
+	private final byte[] cells;
+
+	public HeapCellStorage(int size) {
+		this.cells = new byte[size];
+	}
+
+	@Override
+	public long size() {
+		return this.cells.length;
+	}
+
+	@Override
+	public byte get(long cell) {
+		return this.cells[(int) cell];
+	}
+
+	@Override
+	public void set(long cell, byte tile) {
+		this.cells[(int) cell] = tile;
+	}
+
+	@Override
+	public void copyTo(long cell, byte[] dest, int offset, int length) {
+		System.arraycopy(this.cells, (int) cell, dest, offset, length);
+	}
+}
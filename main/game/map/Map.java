@@ -1,106 +1,209 @@
 package main.game.map;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import main.game.Player;
 
 public class Map {
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
 	private static final int[] ROCK_POSITIONS_X = {0, 1, 2, 3, 4, 5, 6};
 	private static final int[] ROCK_POSITIONS_Y = {0, 1, 2, 3, 4, 5, 6};
+	// Acima disso o cache de Points canônicos custaria mais memória do que economiza
+	private static final int POINT_CACHE_LIMIT = 1 << 22;
 
-	private String [][] scenario;
+	private final int sizeX;
+	private final int sizeY;
+	// Cenário compactado: um byte (Tile) por célula, indexado por x * sizeY + y
+	private final CellStorage cells;
+	private final long cellCount;
+	// Mapas com até Integer.MAX_VALUE células também aceitam a API de índices int
+	private final boolean cellIndexed;
 	private Point robotLocation;
+	private long robotCell;
+	// Instâncias canônicas por célula, criadas sob demanda
+	private Point[] points;
+	// Incrementado sempre que o terreno muda (baú aberto, obstáculo pisado); mover o robô sobre
+	// células livres não conta, então caches de planejamento só expiram quando o mapa realmente muda
+	private int terrainVersion;
+	// Maior versão já usada: uma versão nunca se repete, nem depois de um rollback, então cada
+	// versão identifica um único estado do terreno e os caches continuam válidos ao voltar a ele
+	private int lastTerrainVersion;
+	private volatile DistanceField chestDistances;
+	// Obstáculos ao redor de cada célula, criado na primeira consulta e mantido a cada mudança.
+	// Volátil como chestDistances: estratégias podem consultar o mapa de várias threads
+	private volatile ObstacleDensity obstacleDensity;
+	// Não nulo quando este mapa é a visão de um robô num cenário compartilhado com outros robôs
+	private final SharedBoard board;
+	// Não nulo entre mark() e commit(): registra cada mudança para que rollback() possa desfazê-la
+	private UndoLog undoLog;
+
+	// Distância BFS de cada célula até o baú fechado mais próximo, válida para uma versão do terreno
+	private static class DistanceField {
+		private final int terrainVersion;
+		private final int[] distances;
+
+		DistanceField(int terrainVersion, int[] distances) {
+			this.terrainVersion = terrainVersion;
+			this.distances = distances;
+		}
+	}
 	
-	private HashMap<String, Point> treasureChests;
+	// Conteúdo escondido de cada baú, pela célula
+	private ChestIndex treasureChests;
 	
 	public Map (int scenarioSizeX, int scenarioSizeY) {
-		this.treasureChests = new HashMap<>();
-		this.scenario = new String[scenarioSizeX][scenarioSizeY];
-		this.robotLocation = new Point(0,0);
-		this.generateMap();
+		this(scenarioSizeX, scenarioSizeY, new SplittableRandom());
 	}
 	
-	private String[][] generateMap() {
-		this.scenario[this.robotLocation.getPositionX()][this.robotLocation.getPositionY()] = Player.CHARACTER;
-		generateRocks();
-		generateTreasureChests();
-		generateMapOfTreasure();
-		generateMonsters();
-		
-		return scenario;
-		
+	// Mesma semente, mesmo mapa: usado para comparar estratégias sobre a mesma sequência de mapas
+	public Map (int scenarioSizeX, int scenarioSizeY, long seed) {
+		this(scenarioSizeX, scenarioSizeY, new SplittableRandom(seed));
+	}
+	
+	// Geração configurável (quantidades, densidades, dimensões arbitrárias), ver MapGenerator
+	public Map (int scenarioSizeX, int scenarioSizeY, long seed, MapGenerator generator) {
+		this(scenarioSizeX, scenarioSizeY, new SplittableRandom(seed), generator, null);
+	}
+	
+	// Permite escolher o armazenamento do cenário, por exemplo OffHeapCellStorage em mapas enormes
+	public Map (int scenarioSizeX, int scenarioSizeY, long seed, CellStorage storage) {
+		this(scenarioSizeX, scenarioSizeY, new SplittableRandom(seed), null, storage);
+	}
+	
+	public Map (int scenarioSizeX, int scenarioSizeY, long seed, MapGenerator generator, CellStorage storage) {
+		this(scenarioSizeX, scenarioSizeY, new SplittableRandom(seed), generator, storage);
+	}
+	
+	private Map (int scenarioSizeX, int scenarioSizeY, SplittableRandom random) {
+		this(scenarioSizeX, scenarioSizeY, random, null, null);
+	}
+	
+	private Map (int scenarioSizeX, int scenarioSizeY, SplittableRandom random, MapGenerator generator, CellStorage storage) {
+		this.treasureChests = new ChestIndex();
+		this.board = null;
+		this.sizeX = scenarioSizeX;
+		this.sizeY = scenarioSizeY;
+		this.cellCount = (long) scenarioSizeX * scenarioSizeY;
+		if (storage == null) {
+			storage = new HeapCellStorage(Math.toIntExact(this.cellCount));
+		} else if (storage.size() != this.cellCount) {
+			throw new IllegalArgumentException("O armazenamento não tem o tamanho do mapa");
+		}
+		this.cells = storage;
+		this.cellIndexed = this.cellCount <= Integer.MAX_VALUE;
+		this.robotLocation = pointAt(0, 0);
+		this.robotCell = 0;
+		if (generator == null) {
+			this.generateMap(random);
+		} else {
+			setTile(0, 0, Tile.ROBOT);
+			generator.generate(this, random);
+		}
 	}
 	
-	private void generateMapOfTreasure() {
-		Random random = new Random();
+	// Mapa já pronto sobre um armazenamento existente, sem gerar nada (ver MapCorpus)
+	Map (int scenarioSizeX, int scenarioSizeY, CellStorage storage, int robotCell) {
+		this.treasureChests = new ChestIndex();
+		this.board = null;
+		this.sizeX = scenarioSizeX;
+		this.sizeY = scenarioSizeY;
+		this.cellCount = (long) scenarioSizeX * scenarioSizeY;
+		if (storage.size() != this.cellCount) {
+			throw new IllegalArgumentException("O armazenamento não tem o tamanho do mapa");
+		}
+		this.cells = storage;
+		this.cellIndexed = this.cellCount <= Integer.MAX_VALUE;
+		this.robotLocation = toPoint(robotCell);
+		this.robotCell = robotCell;
+	}
+	
+	// Visão de um robô sobre o cenário de um SharedBoard: mesmo armazenamento e mesmos baús,
+	// posição própria. A versão do terreno passa a ser a do tabuleiro.
+	Map (Map shared, SharedBoard board, int robotCell) {
+		this.treasureChests = shared.treasureChests;
+		this.board = board;
+		this.sizeX = shared.sizeX;
+		this.sizeY = shared.sizeY;
+		this.cellCount = shared.cellCount;
+		this.cells = shared.cells;
+		this.cellIndexed = shared.cellIndexed;
+		// Compartilha também o cache de Points, se o mapa base já tiver um
+		this.points = shared.points;
+		this.robotLocation = toPoint(robotCell);
+		this.robotCell = robotCell;
+	}
+	
+	private void generateMap(SplittableRandom random) {
+		setTile(this.robotLocation.getPositionX(), this.robotLocation.getPositionY(), Tile.ROBOT);
+		generateRocks(random);
+		generateTreasureChests(random);
+		generateMapOfTreasure(random);
+		generateMonsters(random);
+	}
+	
+	private void generateMapOfTreasure(SplittableRandom random) {
 		int mapOfTreasureCount = 0;
 		while (mapOfTreasureCount < 1) {
-			int mapRandomX = random.nextInt(2, this.scenario.length);
-			int mapRandomY = random.nextInt(2, this.scenario.length);
-			if(scenario[mapRandomX][mapRandomY] == null) {
-				this.scenario[mapRandomX][mapRandomY] = MapOfTreasure.CHARACTER;
+			int mapRandomX = random.nextInt(2, this.sizeX);
+			int mapRandomY = random.nextInt(2, this.sizeX);
+			if(getTile(mapRandomX, mapRandomY) == Tile.NONE) {
+				setTile(mapRandomX, mapRandomY, Tile.MAP_OF_TREASURE);
 				mapOfTreasureCount++;
 	        }
 		}
 	}
 
-	private void generateTreasureChests() {
-		Random random = new Random();
+	private void generateTreasureChests(SplittableRandom random) {
 		int treasureChestCount = 0;
     	List<String> treasureCharacters = new LinkedList<>();
     	treasureCharacters.add(TreasureChest.CHEST_EMPTY_CHARACTER);
     	treasureCharacters.add(TreasureChest.CHEST_TRAP_CHARACTER);
     	treasureCharacters.add(TreasureChest.CHEST_TRESURE_CHARACTER);
 		while (treasureChestCount < 3) {
-			int treasureChestsX = random.nextInt(this.scenario.length);
+			int treasureChestsX = random.nextInt(this.sizeX);
 			int treasureChestsY;
-			if(treasureChestsX == (this.scenario[0].length - 1)) {
-				treasureChestsY = random.nextInt(this.scenario[0].length);				
+			if(treasureChestsX == (this.sizeY - 1)) {
+				treasureChestsY = random.nextInt(this.sizeY);				
 			} else {
-				treasureChestsY = this.scenario.length - 1;
+				treasureChestsY = this.sizeX - 1;
 			}
 	        
-	        if(scenario[treasureChestsX][treasureChestsY] == null) {
-	        	scenario[treasureChestsX][treasureChestsY] = TreasureChest.CHARACTER;
+	        if(getTile(treasureChestsX, treasureChestsY) == Tile.NONE) {
+	        	setTile(treasureChestsX, treasureChestsY, Tile.TREASURE_CHEST);
 
 	        	int index = random.nextInt(treasureCharacters.size());
-	        	treasureChests.put(treasureCharacters.get(index), new Point(treasureChestsX, treasureChestsY));
+	        	treasureChests.put(offset(treasureChestsX, treasureChestsY), Tile.fromCharacter(treasureCharacters.get(index)));
 	        	treasureCharacters.remove(index);
 	        	treasureChestCount++;
 	        }
 		}
 	}
 
-	private void generateMonsters() {
-		Random random = new Random();
+	private void generateMonsters(SplittableRandom random) {
 		List<Monster> monsters = new ArrayList<>();
 		int monsterCount = 0;
 		while (monsterCount < 3) {
-			int monsterRandomX = random.nextInt(2, this.scenario.length-1);
-	        int monsterRandomY = random.nextInt(2, this.scenario[0].length-1);
+			int monsterRandomX = random.nextInt(2, this.sizeX-1);
+	        int monsterRandomY = random.nextInt(2, this.sizeY-1);
 	        
-	        if(this.scenario[monsterRandomX][monsterRandomY] == null) {
-	        	this.scenario[monsterRandomX][monsterRandomY] = Monster.CHARACTER;
+	        if(getTile(monsterRandomX, monsterRandomY) == Tile.NONE) {
+	        	setTile(monsterRandomX, monsterRandomY, Tile.MONSTER);
 	        	monsterCount++;
 	        }
 		}
 		
 		for (int i = 0; i < monsters.size(); i++) {
 			Point coordinate = monsters.get(i).getPoints();
-			this.scenario[coordinate.getPositionX()][coordinate.getPositionY()] = Monster.CHARACTER;
+			setTile(coordinate.getPositionX(), coordinate.getPositionY(), Tile.MONSTER);
 		}
 	}
 
-	private void generateRocks() {
+	private void generateRocks(SplittableRandom random) {
 		
-        Random random = new Random();
-		
-		List<Rock> rocks = new ArrayList<>();
 		int rockCount = 0;
 		while(rockCount < 3) {
 	
@@ -112,64 +215,56 @@ public class Map {
 	        	indexRandomY = random.nextInt(ROCK_POSITIONS_Y.length);
 	        }
 	        
-	        int positionX1 = ROCK_POSITIONS_X[indexRandomX];
-	        int positionY1 = ROCK_POSITIONS_X[indexRandomY];
-	        
-	        int positionX2 = ROCK_POSITIONS_X[indexRandomX];
-	        int positionY2 = ROCK_POSITIONS_X[indexRandomY] + 1;
+	        int positionX = ROCK_POSITIONS_X[indexRandomX];
+	        int positionY = ROCK_POSITIONS_X[indexRandomY];
 	        
-	        int positionX3 = ROCK_POSITIONS_X[indexRandomX] + 1;
-	        int positionY3 = ROCK_POSITIONS_X[indexRandomY];
-	        
-	        int positionX4 = ROCK_POSITIONS_X[indexRandomX] + 1;
-	        int positionY4 = ROCK_POSITIONS_X[indexRandomY] + 1;
-	        
-	        List<Point> rockPoints = new LinkedList<>();
-	        rockPoints.add(new Point(positionX1, positionY1));
-	        rockPoints.add(new Point(positionX2, positionY2));
-	        rockPoints.add(new Point(positionX3, positionY3));
-	        rockPoints.add(new Point(positionX4, positionY4));
-	        
-	        if(!rocks.isEmpty()) {
-	        	boolean conflict = false;
-	        	
-	        	for(int i = 0; i < rocks.size(); i++) {
-	        		Rock c = rocks.get(i);
-	        		if(c.hasConflict(rockPoints)) {
-	        			conflict = true;
-	        			break;
-	        		}
-	        	}
-	        	if(conflict) {
-	        		continue;
-	        	}
+	        // O próprio cenário serve de mapa de ocupação: não é preciso comparar com cada rocha já colocada
+	        if(!isRockBlockFree(offset(positionX, positionY))) {
+	        	continue;
 	        }
-	        
-	       
-	        rocks.add(new Rock(rockPoints));
+	        placeRockBlock(offset(positionX, positionY));
 	        rockCount++;
-			
-		}
-		
-		for (int i = 0; i < rocks.size(); i++) {
-			List<Point> points = rocks.get(i).getPoints();
-			for (int j = 0; j < points.size(); j++) {
-				Point point = points.get(j);
-				this.scenario[point.getPositionX()][point.getPositionY()] = Rock.CHARACTER;
-			}
 		}
 	}
 
+	// Uma rocha ocupa o bloco 2x2 com canto superior esquerdo em cell
+	boolean isRockBlockFree(long cell) {
+		return this.cells.get(cell) == Tile.NONE && this.cells.get(cell + 1) == Tile.NONE
+			&& this.cells.get(cell + this.sizeY) == Tile.NONE && this.cells.get(cell + this.sizeY + 1) == Tile.NONE;
+	}
+
+	void placeRockBlock(long cell) {
+		this.cells.set(cell, Tile.ROCK);
+		this.cells.set(cell + 1, Tile.ROCK);
+		this.cells.set(cell + this.sizeY, Tile.ROCK);
+		this.cells.set(cell + this.sizeY + 1, Tile.ROCK);
+	}
+
+	void placeTile(int cell, byte tile) {
+		this.cells.set(cell, tile);
+	}
+
+	void placeTreasureChest(int cell, byte content) {
+		this.cells.set(cell, Tile.TREASURE_CHEST);
+		registerTreasureChest(cell, content);
+	}
+
+	// Só registra o conteúdo escondido (Tile.CHEST_*); a célula já deve conter Tile.TREASURE_CHEST
+	void registerTreasureChest(int cell, byte content) {
+		this.treasureChests.put(cell, content);
+	}
+
 	public void print() {
-		for (int i = 0; i < scenario.length; i++) {
-			for (int j = 0; j < scenario[i].length; j++) {
-				if (scenario[i][j] == null) {
-					scenario[i][j] = "*";
+		for (int i = 0; i < this.sizeX; i++) {
+			for (int j = 0; j < this.sizeY; j++) {
+				if (getTile(i, j) == Tile.NONE) {
+					setTile(i, j, Tile.EMPTY);
 				}
-				if(j == (scenario[i].length - 1)) {
-					System.out.println(scenario[i][j]);
+				String character = Tile.toCharacter(getTile(i, j));
+				if(j == (this.sizeY - 1)) {
+					System.out.println(character);
 				} else {
-					System.out.print(scenario[i][j] + " ");
+					System.out.print(character + " ");
 				}
 			}
 		}
@@ -181,40 +276,325 @@ public class Map {
 	}
 
 	public String get(Point point) {
-		return this.scenario[point.getPositionX()][point.getPositionY()];
+		return Tile.toCharacter(getTile(point));
+	}
+
+	public byte getTile(Point point) {
+		return this.cells.get(offset(point.getPositionX(), point.getPositionY()));
+	}
+
+	public byte getTile(int x, int y) {
+		return this.cells.get(offset(x, y));
+	}
+
+	public byte getTile(int cell) {
+		return this.cells.get(cell);
+	}
+
+	// Copia o cenário inteiro, célula por índice, para dest a partir de offset
+	public void copyTiles(byte[] dest, int offset) {
+		this.cells.copyTo(0, dest, offset, Math.toIntExact(this.cellCount));
+	}
+
+	public int getRobotCell() {
+		return checkedCell(this.robotCell);
+	}
+
+	public boolean isCellIndexed() {
+		return this.cellIndexed;
+	}
+
+	public long getCellCount() {
+		return this.cellCount;
+	}
+
+	public int cellIndex(int x, int y) {
+		return checkedCell(offset(x, y));
+	}
+
+	private long offset(int x, int y) {
+		return (long) x * this.sizeY + y;
+	}
+
+	private int checkedCell(long offset) {
+		if (!this.cellIndexed) {
+			throw new UnsupportedOperationException("Mapa grande demais para índices int; use a API de Point");
+		}
+		return (int) offset;
+	}
+
+	public int cellIndex(Point point) {
+		return cellIndex(point.getPositionX(), point.getPositionY());
+	}
+
+	public int cellX(int cell) {
+		return cell / this.sizeY;
+	}
+
+	public int cellY(int cell) {
+		return cell % this.sizeY;
+	}
+
+	public Point pointAt(int x, int y) {
+		if (this.cellCount > POINT_CACHE_LIMIT) {
+			return new Point(x, y);
+		}
+		return toPoint(cellIndex(x, y));
+	}
+
+	public Point toPoint(int cell) {
+		if (this.cellCount > POINT_CACHE_LIMIT) {
+			return new Point(cellX(cell), cellY(cell));
+		}
+		if (this.points == null) {
+			this.points = new Point[(int) this.cellCount];
+		}
+		Point point = this.points[cell];
+		if (point == null) {
+			// Point é imutável, então uma corrida aqui só cria uma instância equivalente
+			point = new Point(cellX(cell), cellY(cell));
+			this.points[cell] = point;
+		}
+		return point;
+	}
+
+	// Escreve em out os vizinhos válidos de cell, na mesma ordem usada pelo Player
+	// (y + 1, x + 1, x - 1, y - 1), e retorna quantos foram escritos. Não aloca.
+	public int neighbourCells(int cell, int[] out) {
+		int x = cellX(cell);
+		int y = cellY(cell);
+		int count = 0;
+		if (y + 1 < this.sizeY) {
+			out[count++] = cell + 1;
+		}
+		if (x + 1 < this.sizeX) {
+			out[count++] = cell + this.sizeY;
+		}
+		if (x > 0) {
+			out[count++] = cell - this.sizeY;
+		}
+		if (y > 0) {
+			out[count++] = cell - 1;
+		}
+		return count;
+	}
+
+	private void setTile(int x, int y, byte tile) {
+		this.cells.set(offset(x, y), tile);
+	}
+
+	// Mudança de célula durante o jogo: mantém as contagens de obstáculos, se já existirem
+	private void changeTile(long cell, byte tile) {
+		byte previous = this.cells.get(cell);
+		if (this.undoLog != null) {
+			this.undoLog.add(cell, previous);
+		}
+		restoreTile(cell, previous, tile);
+	}
+
+	private void restoreTile(long cell, byte previous, byte tile) {
+		this.cells.set(cell, tile);
+		if (this.obstacleDensity != null && Tile.isObstacle(previous) != Tile.isObstacle(tile)) {
+			this.obstacleDensity.update((int) cell, Tile.isObstacle(tile) ? 1 : -1);
+		}
+	}
+
+	// Obstáculos nas 8 células ao redor de cell (diagonais incluídas), em O(1)
+	public int getAdjacentObstacleCount(int cell) {
+		return obstacleDensity().get(cell);
+	}
+
+	// Obstáculos no quadrado de lado 2 * radius + 1 centrado em cell, sem contar a própria célula.
+	// Tempo constante depois de montada a tabela de somas, que só é refeita quando o terreno muda.
+	public int getObstacleCountWithin(int cell, int radius) {
+		return obstacleDensity().countWithin(this, cell, radius);
+	}
+
+	private ObstacleDensity obstacleDensity() {
+		ObstacleDensity density = this.obstacleDensity;
+		// Num tabuleiro compartilhado os outros robôs mudam o terreno sem passar por esta visão
+		if (density == null || (this.board != null && density.getTerrainVersion() != getTerrainVersion())) {
+			int version = getTerrainVersion();
+			byte[] tiles = new byte[checkedCell(this.cellCount)];
+			copyTiles(tiles, 0);
+			density = new ObstacleDensity(this.sizeX, this.sizeY, tiles, version);
+			this.obstacleDensity = density;
+		}
+		return density;
+	}
+
+	public int getTerrainVersion() {
+		return this.board == null ? this.terrainVersion : this.board.getTerrainVersion();
+	}
+
+	private void terrainChanged() {
+		if (this.board == null) {
+			if (this.undoLog != null) {
+				this.undoLog.add(this.terrainVersion, UndoLog.TERRAIN_VERSION);
+			}
+			this.terrainVersion = ++this.lastTerrainVersion;
+		} else {
+			this.board.terrainChanged();
+		}
+	}
+
+	// Passos até o baú fechado mais próximo contornando rochas e monstros, ou UNREACHABLE.
+	// O campo é calculado sob demanda e só é refeito quando o terreno muda.
+	public int getChestDistance(int cell) {
+		DistanceField field = this.chestDistances;
+		int version = getTerrainVersion();
+		if (field == null || field.terrainVersion != version) {
+			field = new DistanceField(version, computeChestDistances());
+			this.chestDistances = field;
+		}
+		return field.distances[cell];
+	}
+
+	private int[] computeChestDistances() {
+		int cellCount = checkedCell(this.cellCount);
+		int[] distances = new int[cellCount];
+		int[] queue = new int[cellCount];
+		int head = 0;
+		int tail = 0;
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (this.cells.get(cell) == Tile.TREASURE_CHEST) {
+				distances[cell] = 0;
+				queue[tail++] = cell;
+			} else {
+				distances[cell] = UNREACHABLE;
+			}
+		}
+
+		int[] neighbours = new int[4];
+		while (head < tail) {
+			int cell = queue[head++];
+			int count = neighbourCells(cell, neighbours);
+			for (int i = 0; i < count; i++) {
+				int next = neighbours[i];
+				if (distances[next] == UNREACHABLE && Tile.isPassable(this.cells.get(next))) {
+					distances[next] = distances[cell] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return distances;
 	}
 
 	public void moveRobot(Point nextPoint) {
-		this.scenario[nextPoint.getPositionX()][nextPoint.getPositionY()] = Player.CHARACTER;
-		this.scenario[this.robotLocation.getPositionX()][this.robotLocation.getPositionY()] = "*";
+		boolean terrainChanged = !Tile.isFree(getTile(nextPoint));
+		changeTile(offset(nextPoint.getPositionX(), nextPoint.getPositionY()), Tile.ROBOT);
+		changeTile(this.robotCell, Tile.EMPTY);
+		// A versão só muda depois das escritas: num tabuleiro compartilhado, quem lê a versão
+		// nova já enxerga o terreno novo, e nenhum cache fica marcado com a versão errada
+		if (terrainChanged) {
+			terrainChanged();
+		}
+		if (this.undoLog != null) {
+			this.undoLog.add(this.robotCell, UndoLog.ROBOT_MOVE);
+		}
 		this.robotLocation = nextPoint;
+		this.robotCell = offset(nextPoint.getPositionX(), nextPoint.getPositionY());
+	}
+
+	public void moveRobot(int nextCell) {
+		boolean terrainChanged = !Tile.isFree(this.cells.get(nextCell));
+		changeTile(nextCell, Tile.ROBOT);
+		changeTile(this.robotCell, Tile.EMPTY);
+		// Como em moveRobot(Point), a versão só muda depois das escritas
+		if (terrainChanged) {
+			terrainChanged();
+		}
+		if (this.undoLog != null) {
+			this.undoLog.add(this.robotCell, UndoLog.ROBOT_MOVE);
+		}
+		this.robotLocation = toPoint(nextCell);
+		this.robotCell = nextCell;
 	}
 
 	public boolean openTreasureChest(Point nextPoint) {
-	    Iterator<String> it = treasureChests.keySet().iterator();
-	    while(it.hasNext()) {
-	        String key = it.next();
-	        if (treasureChests.get(key).equals(nextPoint)) {
-	            if(key.equals(TreasureChest.CHEST_TRESURE_CHARACTER)) {
-	                System.out.println("Parabéns você encontrou o tesouro!");
-	                this.scenario[nextPoint.getPositionX()][nextPoint.getPositionY()] = key;
-	                return true;
-	            } else if (key.equals(TreasureChest.CHEST_TRAP_CHARACTER)) {
-	                System.out.println("O jogo acabou! Você morreu, caiu em uma armadilha");
-	                this.scenario[nextPoint.getPositionX()][nextPoint.getPositionY()] = key;
-	                return true;
-	            } else {
-	                System.out.println("Aqui não tem nada");
-	                this.scenario[nextPoint.getPositionX()][nextPoint.getPositionY()] = key;
-	                return false; // Retorna false para indicar que o jogo deve continuar
-	            }
-	        }
+	    long cell = offset(nextPoint.getPositionX(), nextPoint.getPositionY());
+	    byte content = treasureChests.get(cell);
+	    if (content == Tile.NONE) {
+	        return false;
+	    }
+	    changeTile(cell, content);
+	    terrainChanged();
+	    if(content == Tile.CHEST_TREASURE) {
+	        System.out.println("Parabéns você encontrou o tesouro!");
+	        return true;
+	    } else if (content == Tile.CHEST_TRAP) {
+	        System.out.println("O jogo acabou! Você morreu, caiu em uma armadilha");
+	        return true;
+	    } else {
+	        System.out.println("Aqui não tem nada");
+	        return false; // Retorna false para indicar que o jogo deve continuar
 	    }
-	    return false;
+	}
+
+	// Ponto de retorno para buscas com lookahead: a partir daqui cada movimento do robô e cada baú
+	// aberto é registrado, e rollback(checkpoint) desfaz tudo o que veio depois, em tempo
+	// proporcional ao número de mudanças, sem copiar o cenário. Marcas podem ser aninhadas.
+	public int mark() {
+		if (this.board != null) {
+			throw new UnsupportedOperationException("Visões de um tabuleiro compartilhado não podem ser desfeitas");
+		}
+		if (this.undoLog == null) {
+			this.undoLog = new UndoLog();
+		}
+		return this.undoLog.size();
+	}
+
+	// Volta ao estado de mark(); a marca continua válida e pode ser usada de novo
+	public void rollback(int checkpoint) {
+		if (this.undoLog == null || checkpoint < 0 || checkpoint > this.undoLog.size()) {
+			throw new IllegalArgumentException("Marca inválida: " + checkpoint);
+		}
+		for (int i = this.undoLog.size() - 1; i >= checkpoint; i--) {
+			long value = this.undoLog.valueAt(i);
+			byte kind = this.undoLog.kindAt(i);
+			if (kind == UndoLog.ROBOT_MOVE) {
+				this.robotCell = value;
+				this.robotLocation = this.cellIndexed ? toPoint((int) value) : new Point((int) (value / this.sizeY), (int) (value % this.sizeY));
+			} else if (kind == UndoLog.TERRAIN_VERSION) {
+				this.terrainVersion = (int) value;
+			} else {
+				restoreTile(value, this.cells.get(value), kind);
+			}
+		}
+		this.undoLog.truncate(checkpoint);
+	}
+
+	// Mantém as mudanças, descarta todas as marcas e para de registrar
+	public void commit() {
+		this.undoLog = null;
+	}
+
+	// Abre o baú sem mensagens nem regras de fim de jogo; devolve o conteúdo revelado ou Tile.NONE
+	public byte revealTreasureChest(int cell) {
+		byte content = getChestContent(cell);
+		if (content != Tile.NONE) {
+			changeTile(cell, content);
+			terrainChanged();
+		}
+		return content;
+	}
+
+	// Conteúdo escondido do baú na célula (Tile.CHEST_*), ou Tile.NONE se não houver baú.
+	// Não é para estratégias: serve à análise, que precisa saber onde está o tesouro.
+	public byte getChestContent(int cell) {
+		return treasureChests.get(cell);
 	}
 
 	public int[] getScenarioSize() {
-		int[] size = {this.scenario.length, this.scenario[0].length};
+		int[] size = {this.sizeX, this.sizeY};
 		return size;
 	}
+
+	public int getSizeX() {
+		return this.sizeX;
+	}
+
+	public int getSizeY() {
+		return this.sizeY;
+	}
 }
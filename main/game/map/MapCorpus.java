@@ -0,0 +1,247 @@
+package main.game.map;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Arquivo com N mapas prontos, para que todas as estratégias (e todas as máquinas)
+// joguem exatamente os mesmos tabuleiros. Formato, tudo big-endian:
+//
+//   int magic, int versão, int quantidade, long[quantidade] posição de cada registro
+//   registro: int sizeX, int sizeY, long semente, int célula do robô, int baús,
+//             baús x (int célula, byte conteúdo), byte[sizeX * sizeY] células (Tile)
+//
+// open() mapeia o arquivo uma vez, só para leitura, e cada registro é uma fatia desse
+// mapeamento: nada é copiado na carga. As células de cada mapa só são copiadas na primeira
+// jogada (ver CopyOnWriteCellStorage), então o arquivo nunca muda e pode estar num disco
+// só de leitura. Um único buffer mapeado vai até Integer.MAX_VALUE bytes; corpora maiores
+// ficam em várias regiões, cada uma com registros inteiros.
+public class MapCorpus implements Closeable {
+	private static final int MAGIC = 0x574D5043; // "WMPC"
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER_BYTES = 12;
+	private static final int RECORD_HEADER_BYTES = 24;
+	private static final int CHEST_BYTES = 5;
+	private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+	private final FileChannel channel;
+	private final long[] offsets;
+	private final MappedByteBuffer[] regions;
+	private final long[] regionStarts;
+	private final int[] regionOf;
+	private final boolean uniformSize;
+
+	private MapCorpus(FileChannel channel, long[] offsets, MappedByteBuffer[] regions, long[] regionStarts, int[] regionOf) {
+		this.channel = channel;
+		this.offsets = offsets;
+		this.regions = regions;
+		this.regionStarts = regionStarts;
+		this.regionOf = regionOf;
+		boolean uniform = true;
+		for (int i = 1; i < offsets.length && uniform; i++) {
+			uniform = getSizeX(i) == getSizeX(0) && getSizeY(i) == getSizeY(0);
+		}
+		this.uniformSize = uniform;
+	}
+
+	public static MapCorpus open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long fileSize = channel.size();
+			if (fileSize < FILE_HEADER_BYTES) {
+				throw new IOException("Arquivo não é um corpus de mapas: " + file);
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_HEADER_BYTES);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("Arquivo não é um corpus de mapas: " + file);
+			}
+			int count = header.getInt(8);
+			if (count <= 0) {
+				throw new IOException("Corpus sem mapas: " + file);
+			}
+			MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, FILE_HEADER_BYTES, (long) count * Long.BYTES);
+			long[] offsets = new long[count];
+			index.asLongBuffer().get(offsets);
+
+			// Os registros são gravados em sequência, então o registro i vai até o início do i + 1
+			int[] regionOf = new int[count];
+			long[] regionStarts = new long[count];
+			int regionCount = 0;
+			long regionEnd = 0;
+			for (int i = 0; i < count; i++) {
+				long end = i + 1 < count ? offsets[i + 1] : fileSize;
+				if (offsets[i] < FILE_HEADER_BYTES || end < offsets[i] + RECORD_HEADER_BYTES || end > fileSize) {
+					throw new IOException("Índice do corpus corrompido no registro " + i + ": " + file);
+				}
+				if (regionCount == 0 || end - regionStarts[regionCount - 1] > Integer.MAX_VALUE) {
+					regionStarts[regionCount++] = offsets[i];
+				}
+				regionOf[i] = regionCount - 1;
+				regionEnd = end;
+			}
+			MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+			for (int r = 0; r < regionCount; r++) {
+				long end = r + 1 < regionCount ? regionStarts[r + 1] : regionEnd;
+				regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, regionStarts[r], end - regionStarts[r]);
+			}
+			return new MapCorpus(channel, offsets, regions, Arrays.copyOf(regionStarts, regionCount), regionOf);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public int size() {
+		return this.offsets.length;
+	}
+
+	// Se todos os mapas têm as dimensões do primeiro, como o motor em lote exige
+	public boolean hasUniformSize() {
+		return this.uniformSize;
+	}
+
+	public Map load(int index) {
+		ByteBuffer region = this.regions[this.regionOf[index]];
+		int start = recordStart(index);
+		int sizeX = region.getInt(start);
+		int sizeY = region.getInt(start + 4);
+		int robotCell = region.getInt(start + 16);
+		int chestCount = region.getInt(start + 20);
+		int cellsStart = start + RECORD_HEADER_BYTES + chestCount * CHEST_BYTES;
+		ByteBuffer cells = region.slice(cellsStart, Math.toIntExact((long) sizeX * sizeY));
+
+		Map map = new Map(sizeX, sizeY, new CopyOnWriteCellStorage(cells), robotCell);
+		for (int i = 0; i < chestCount; i++) {
+			int position = start + RECORD_HEADER_BYTES + i * CHEST_BYTES;
+			map.registerTreasureChest(region.getInt(position), region.get(position + 4));
+		}
+		return map;
+	}
+
+	// Dimensões do index-ésimo mapa, lidas só do cabeçalho
+	public int getSizeX(int index) {
+		return this.regions[this.regionOf[index]].getInt(recordStart(index));
+	}
+
+	public int getSizeY(int index) {
+		return this.regions[this.regionOf[index]].getInt(recordStart(index) + 4);
+	}
+
+	public long getSeed(int index) {
+		return this.regions[this.regionOf[index]].getLong(recordStart(index) + 8);
+	}
+
+	// Posição do registro dentro da sua região
+	private int recordStart(int index) {
+		return (int) (this.offsets[index] - this.regionStarts[this.regionOf[index]]);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	// Gera count mapas sizeX x sizeY a partir de baseSeed e grava todos em file.
+	// Com generator nulo usa a geração original do Map.
+	public static void write(Path file, int count, long baseSeed, int sizeX, int sizeY, MapGenerator generator) throws IOException {
+		SplittableRandom seeds = new SplittableRandom(baseSeed);
+		long[] offsets = new long[count];
+		ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			long position = FILE_HEADER_BYTES + (long) count * Long.BYTES;
+			channel.position(position);
+
+			for (int i = 0; i < count; i++) {
+				long seed = seeds.nextLong();
+				Map map = generator == null ? new Map(sizeX, sizeY, seed) : new Map(sizeX, sizeY, seed, generator);
+				offsets[i] = position;
+				position += writeRecord(channel, buffer, map, seed);
+			}
+			flush(channel, buffer);
+
+			// Cabeçalho e índice por último, quando as posições dos registros já são conhecidas
+			long indexPosition = 0;
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+			for (long offset : offsets) {
+				if (buffer.remaining() < Long.BYTES) {
+					indexPosition += flushAt(channel, buffer, indexPosition);
+				}
+				buffer.putLong(offset);
+			}
+			flushAt(channel, buffer, indexPosition);
+		}
+	}
+
+	private static long writeRecord(FileChannel channel, ByteBuffer buffer, Map map, long seed) throws IOException {
+		int cellCount = Math.toIntExact(map.getCellCount());
+		int chestCount = 0;
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (map.getTile(cell) == Tile.TREASURE_CHEST) {
+				chestCount++;
+			}
+		}
+
+		ensureRoom(channel, buffer, RECORD_HEADER_BYTES);
+		buffer.putInt(map.getSizeX()).putInt(map.getSizeY()).putLong(seed).putInt(map.getRobotCell()).putInt(chestCount);
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (map.getTile(cell) == Tile.TREASURE_CHEST) {
+				ensureRoom(channel, buffer, CHEST_BYTES);
+				buffer.putInt(cell).put(map.getChestContent(cell));
+			}
+		}
+		for (int cell = 0; cell < cellCount; cell++) {
+			ensureRoom(channel, buffer, 1);
+			buffer.put(map.getTile(cell));
+		}
+		return RECORD_HEADER_BYTES + (long) chestCount * CHEST_BYTES + cellCount;
+	}
+
+	private static void ensureRoom(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush(channel, buffer);
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static int flushAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		buffer.flip();
+		int written = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		buffer.clear();
+		return written;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4) {
+			System.out.println("Uso: MapCorpus <arquivo> <quantidade> <sizeX> <sizeY> [semente]");
+			return;
+		}
+		Path file = Path.of(args[0]);
+		int count = Integer.parseInt(args[1]);
+		int sizeX = Integer.parseInt(args[2]);
+		int sizeY = Integer.parseInt(args[3]);
+		long baseSeed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+		long start = System.nanoTime();
+		write(file, count, baseSeed, sizeX, sizeY, null);
+		System.out.printf("%d mapas %dx%d (semente %d) gravados em %s em %.1f ms\n",
+			count, sizeX, sizeY, baseSeed, file, (System.nanoTime() - start) / 1e6);
+	}
+}
@@ -0,0 +1,159 @@
+package main.game.map;
+
+import java.util.SplittableRandom;
+
+// Gerador configurável de mapas: quantidade de cada item e dimensões arbitrárias.
+// A ocupação fica num bitmap (um bit por célula). Enquanto o mapa está esparso cada item
+// é sorteado direto no bitmap, em O(1) esperado; quando os sorteios começam a falhar
+// demais, passa a tirar posições de uma lista embaralhada sob demanda (Fisher-Yates
+// parcial), então a geração nunca degrada com o mapa cheio.
+public class MapGenerator {
+	// Falhas seguidas no sorteio direto antes de trocar para a lista embaralhada
+	private static final int MAX_REJECTIONS = 32;
+
+	private final int rocks;
+	private final int monsters;
+	private final int mapsOfTreasure;
+	private final int treasures;
+	private final int traps;
+	private final int emptyChests;
+
+	// Mesmas quantidades do gerador original: 3 rochas, 3 monstros, 1 mapa e 3 baús
+	public MapGenerator() {
+		this(3, 3, 1, 1, 1, 1);
+	}
+
+	public MapGenerator(int rocks, int monsters, int mapsOfTreasure, int treasures, int traps, int emptyChests) {
+		if (rocks < 0 || monsters < 0 || mapsOfTreasure < 0 || treasures < 0 || traps < 0 || emptyChests < 0) {
+			throw new IllegalArgumentException("Quantidades não podem ser negativas");
+		}
+		this.rocks = rocks;
+		this.monsters = monsters;
+		this.mapsOfTreasure = mapsOfTreasure;
+		this.treasures = treasures;
+		this.traps = traps;
+		this.emptyChests = emptyChests;
+	}
+
+	// Densidades são frações das células do mapa cobertas por rochas (blocos 2x2) e monstros
+	public static MapGenerator withDensities(int sizeX, int sizeY, double rockDensity, double monsterDensity) {
+		long cells = (long) sizeX * sizeY;
+		return new MapGenerator((int) (cells * rockDensity / 4), (int) (cells * monsterDensity), 1, 1, 1, 1);
+	}
+
+	void generate(Map map, SplittableRandom random) {
+		if (!map.isCellIndexed()) {
+			throw new IllegalArgumentException("MapGenerator só gera mapas com até Integer.MAX_VALUE células");
+		}
+		Placement placement = new Placement(map, random);
+		placement.occupy(map.getRobotCell());
+
+		for (int i = 0; i < rocks; i++) {
+			map.placeRockBlock(placement.take(2));
+		}
+		placeChests(map, placement, treasures, Tile.CHEST_TREASURE);
+		placeChests(map, placement, traps, Tile.CHEST_TRAP);
+		placeChests(map, placement, emptyChests, Tile.CHEST_EMPTY);
+		for (int i = 0; i < mapsOfTreasure; i++) {
+			map.placeTile(placement.take(1), Tile.MAP_OF_TREASURE);
+		}
+		for (int i = 0; i < monsters; i++) {
+			map.placeTile(placement.take(1), Tile.MONSTER);
+		}
+	}
+
+	private static void placeChests(Map map, Placement placement, int count, byte content) {
+		for (int i = 0; i < count; i++) {
+			map.placeTreasureChest(placement.take(1), content);
+		}
+	}
+
+	// Estado de uma geração: bitmap de ocupação e, se necessário, a lista embaralhada de âncoras
+	private static class Placement {
+		private final int sizeX;
+		private final int sizeY;
+		private final long[] occupied;
+		private final SplittableRandom random;
+		// Âncoras ainda não sorteadas da lista embaralhada, por tamanho de bloco
+		private int[] candidates;
+		private int candidateBlock;
+		private int remainingCandidates;
+
+		Placement(Map map, SplittableRandom random) {
+			this.sizeX = map.getSizeX();
+			this.sizeY = map.getSizeY();
+			this.occupied = new long[(int) (((long) sizeX * sizeY + 63) >>> 6)];
+			this.random = random;
+		}
+
+		void occupy(int cell) {
+			occupied[cell >>> 6] |= 1L << cell;
+		}
+
+		boolean isOccupied(int cell) {
+			return (occupied[cell >>> 6] & (1L << cell)) != 0;
+		}
+
+		// Sorteia a âncora (canto superior esquerdo) de um bloco livre block x block e o ocupa
+		int take(int block) {
+			int rangeX = sizeX - block + 1;
+			int rangeY = sizeY - block + 1;
+			if (candidates == null || candidateBlock != block) {
+				for (int attempt = 0; attempt < MAX_REJECTIONS; attempt++) {
+					int cell = random.nextInt(rangeX) * sizeY + random.nextInt(rangeY);
+					if (isFree(cell, block)) {
+						occupyBlock(cell, block);
+						return cell;
+					}
+				}
+				shuffleCandidates(block, rangeX, rangeY);
+			}
+
+			// Fisher-Yates parcial: cada âncora é sorteada no máximo uma vez
+			while (remainingCandidates > 0) {
+				int index = random.nextInt(remainingCandidates);
+				int cell = candidates[index];
+				candidates[index] = candidates[--remainingCandidates];
+				if (isFree(cell, block)) {
+					occupyBlock(cell, block);
+					return cell;
+				}
+			}
+			throw new IllegalStateException("Não há espaço livre para todos os itens do mapa");
+		}
+
+		private void shuffleCandidates(int block, int rangeX, int rangeY) {
+			int count = 0;
+			candidates = new int[rangeX * rangeY];
+			for (int x = 0; x < rangeX; x++) {
+				for (int y = 0; y < rangeY; y++) {
+					int cell = x * sizeY + y;
+					if (isFree(cell, block)) {
+						candidates[count++] = cell;
+					}
+				}
+			}
+			candidateBlock = block;
+			remainingCandidates = count;
+		}
+
+		private boolean isFree(int cell, int block) {
+			for (int dx = 0; dx < block; dx++) {
+				for (int dy = 0; dy < block; dy++) {
+					if (isOccupied(cell + dx * sizeY + dy)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private void occupyBlock(int cell, int block) {
+			for (int dx = 0; dx < block; dx++) {
+				for (int dy = 0; dy < block; dy++) {
+					occupy(cell + dx * sizeY + dy);
+				}
+			}
+		}
+	}
+}
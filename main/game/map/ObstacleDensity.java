@@ -0,0 +1,109 @@
+package main.game.map;
+
+// Quantos obstáculos (Tile.isObstacle) há nas 8 células ao redor de cada célula, um byte por
+// célula no mesmo índice x * sizeY + y do cenário. O Map mantém as contagens a cada mudança de
+// terreno, em O(1), então a consulta não precisa varrer a vizinhança.
+// Para raios maiores há uma tabela de somas acumuladas (summed-area table), montada sob demanda
+// e refeita só quando o terreno muda: qualquer janela quadrada sai em quatro leituras.
+public final class ObstacleDensity {
+	private final int sizeX;
+	private final int sizeY;
+	private final byte[] counts;
+	// Versão do terreno de quando as contagens foram montadas
+	private final int terrainVersion;
+	// Publicada inteira, nunca alterada depois: leitores em outras threads veem uma tabela completa
+	private volatile SummedArea summedArea;
+
+	// sums[(x + 1) * (sizeY + 1) + (y + 1)] = obstáculos em [0, x] x [0, y]
+	private static class SummedArea {
+		private final int terrainVersion;
+		private final int[] sums;
+
+		SummedArea(int terrainVersion, int[] sums) {
+			this.terrainVersion = terrainVersion;
+			this.sums = sums;
+		}
+	}
+
+	ObstacleDensity(int sizeX, int sizeY, byte[] tiles, int terrainVersion) {
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.terrainVersion = terrainVersion;
+		this.counts = new byte[tiles.length];
+		for (int cell = 0; cell < tiles.length; cell++) {
+			if (Tile.isObstacle(tiles[cell])) {
+				adjust(this.counts, 0, sizeX, sizeY, cell, 1);
+			}
+		}
+	}
+
+	int getTerrainVersion() {
+		return this.terrainVersion;
+	}
+
+	int get(int cell) {
+		return this.counts[cell];
+	}
+
+	// Chamado pelo Map quando a célula passa a ser (delta = 1) ou deixa de ser (delta = -1) obstáculo
+	void update(int cell, int delta) {
+		adjust(this.counts, 0, this.sizeX, this.sizeY, cell, delta);
+	}
+
+	// Soma delta às contagens dos 8 vizinhos de cell, numa grade que começa em base dentro de
+	// counts. Compartilhado com o motor em lote, que guarda várias grades no mesmo array.
+	public static void adjust(byte[] counts, int base, int sizeX, int sizeY, int cell, int delta) {
+		int x = cell / sizeY;
+		int y = cell % sizeY;
+		int fromX = Math.max(x - 1, 0);
+		int toX = Math.min(x + 1, sizeX - 1);
+		int fromY = Math.max(y - 1, 0);
+		int toY = Math.min(y + 1, sizeY - 1);
+		for (int nx = fromX; nx <= toX; nx++) {
+			int row = base + nx * sizeY;
+			for (int ny = fromY; ny <= toY; ny++) {
+				if (nx != x || ny != y) {
+					counts[row + ny] += delta;
+				}
+			}
+		}
+	}
+
+	// Obstáculos na janela (2 * radius + 1)² centrada em cell, sem contar a própria célula
+	int countWithin(Map map, int cell, int radius) {
+		SummedArea table = this.summedArea;
+		if (table == null || table.terrainVersion != map.getTerrainVersion()) {
+			table = buildSummedArea(map);
+			this.summedArea = table;
+		}
+		int[] sums = table.sums;
+		int x = cell / this.sizeY;
+		int y = cell % this.sizeY;
+		int fromX = Math.max(x - radius, 0);
+		int toX = Math.min(x + radius, this.sizeX - 1) + 1;
+		int fromY = Math.max(y - radius, 0);
+		int toY = Math.min(y + radius, this.sizeY - 1) + 1;
+		int stride = this.sizeY + 1;
+		int total = sums[toX * stride + toY] - sums[fromX * stride + toY]
+			- sums[toX * stride + fromY] + sums[fromX * stride + fromY];
+		return Tile.isObstacle(map.getTile(cell)) ? total - 1 : total;
+	}
+
+	private SummedArea buildSummedArea(Map map) {
+		int version = map.getTerrainVersion();
+		int stride = this.sizeY + 1;
+		int[] sums = new int[Math.multiplyExact(this.sizeX + 1, stride)];
+		byte[] tiles = new byte[this.counts.length];
+		map.copyTiles(tiles, 0);
+		for (int x = 0; x < this.sizeX; x++) {
+			int row = 0;
+			for (int y = 0; y < this.sizeY; y++) {
+				if (Tile.isObstacle(tiles[x * this.sizeY + y])) {
+					row++;
+				}
+				sums[(x + 1) * stride + y + 1] = sums[x * stride + y + 1] + row;
+			}
+		}
+		return new SummedArea(version, sums);
+	}
+}
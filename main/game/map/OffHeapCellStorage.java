@@ -0,0 +1,59 @@
+package main.game.map;
+
+import java.nio.ByteBuffer;
+
+// Cenário fora do heap, em ByteBuffers diretos: não pesa no GC e, dividido em blocos,
+// passa do limite de Integer.MAX_VALUE bytes de um único buffer
+public class OffHeapCellStorage implements CellStorage {
+	// Blocos de 1 GiB por padrão
+	private static final int DEFAULT_CHUNK_BITS = 30;
+
+	private final long size;
+	private final int chunkBits;
+	private final long chunkMask;
+	private final ByteBuffer[] chunks;
+
+	public OffHeapCellStorage(long size) {
+		this(size, DEFAULT_CHUNK_BITS);
+	}
+
+	public OffHeapCellStorage(long size, int chunkBits) {
+		if (size < 0 || chunkBits < 1 || chunkBits > 30) {
+			throw new IllegalArgumentException("Tamanho ou bloco inválido");
+		}
+		this.size = size;
+		this.chunkBits = chunkBits;
+		this.chunkMask = (1L << chunkBits) - 1;
+
+		int chunkCount = (int) ((size + this.chunkMask) >>> chunkBits);
+		this.chunks = new ByteBuffer[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			long remaining = size - ((long) i << chunkBits);
+			// allocateDirect devolve a memória zerada, ou seja, todas as células Tile.NONE
+			this.chunks[i] = ByteBuffer.allocateDirect((int) Math.min(remaining, 1L << chunkBits));
+		}
+	}
+
+	// Usa um buffer já existente, por exemplo um buffer direto já preenchido
+	public OffHeapCellStorage(ByteBuffer buffer) {
+		this.size = buffer.capacity();
+		this.chunkBits = DEFAULT_CHUNK_BITS;
+		this.chunkMask = (1L << DEFAULT_CHUNK_BITS) - 1;
+		this.chunks = new ByteBuffer[] {buffer};
+	}
+
+	@Override
+	public long size() {
+		return this.size;
+	}
+
+	@Override
+	public byte get(long cell) {
+		return this.chunks[(int) (cell >>> this.chunkBits)].get((int) (cell & this.chunkMask));
+	}
+
+	@Override
+	public void set(long cell, byte tile) {
+		this.chunks[(int) (cell >>> this.chunkBits)].put((int) (cell & this.chunkMask), tile);
+	}
+}
@@ -1,47 +1,38 @@
 package main.game.map;
 
-public class Point {
-	private String id;
-	private int positionX;
-	private int positionY;
-	private double weight;
+public final class Point {
+	private final int positionX;
+	private final int positionY;
 	
 	public Point(int x, int y) {
-		this.setPositionX(x);
-		this.setPositionY(y);
+		this.positionX = x;
+		this.positionY = y;
 	}
 	
 	public int getPositionX() {
 		return positionX;
 	}
-	public void setPositionX(int positionX) {
-		this.positionX = positionX;
-	}
+
 	public int getPositionY() {
 		return positionY;
 	}
-	public void setPositionY(int positionY) {
-		this.positionY = positionY;
-	}
 
-	public double getWeight() {
-		return weight;
-	}
-
-	public void setWeight(double weight) {
-		this.weight = weight;
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Point)) {
+			return false;
+		}
+		Point p = (Point) obj;
+		return (this.positionX == p.positionX && this.positionY == p.positionY);
 	}
 
-	public String getId() {
-		return id;
+	@Override
+	public int hashCode() {
+		return 31 * this.positionX + this.positionY;
 	}
 
-	public void setId(String id) {
-		this.id = id;
-	}
 	@Override
-	public boolean equals(Object obj) {
-		Point p = (Point) obj;
-		return (this.positionX == p.getPositionX() && this.positionY == p.getPositionY());
+	public String toString() {
+		return this.positionX + "," + this.positionY;
 	}
 }
@@ -0,0 +1,109 @@
+package main.game.map;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Um cenário jogado por vários robôs ao mesmo tempo. Cada robô recebe sua própria visão (um Map
+// com posição própria sobre o mesmo armazenamento e os mesmos baús), e a posse das células fica
+// num AtomicIntegerArray: mover é um CAS de FREE para o número do robô na célula de destino,
+// então dois robôs nunca ocupam a mesma célula e ninguém precisa de trava.
+// Abrir um baú também é um CAS, de FREE para OPENED: só um robô revela cada baú. Um baú vazio
+// volta a ser FREE depois de revelado e outros robôs podem pisar nele, como em Game; tesouro e
+// armadilha encerram a partida de quem os abre e a célula fica OPENED, bloqueada aos demais.
+public class SharedBoard {
+	public static final int FREE = 0;
+	private static final int OPENED = -1;
+
+	private final Map map;
+	// 0 livre, id + 1 ocupada pelo robô id, OPENED baú já aberto
+	private final AtomicIntegerArray occupancy;
+	private final AtomicInteger terrainVersion = new AtomicInteger();
+
+	// O robô do mapa base sai do tabuleiro; as posições passam a vir de join
+	public SharedBoard(Map map) {
+		if (!map.isCellIndexed()) {
+			throw new IllegalArgumentException("Tabuleiro compartilhado só para mapas com até Integer.MAX_VALUE células");
+		}
+		this.map = map;
+		this.occupancy = new AtomicIntegerArray(Math.toIntExact(map.getCellCount()));
+		map.placeTile(map.getRobotCell(), Tile.EMPTY);
+		// Cria o cache de Points do mapa base antes das visões, para que todas o compartilhem
+		map.toPoint(0);
+	}
+
+	public Map getMap() {
+		return this.map;
+	}
+
+	public int getTerrainVersion() {
+		return this.terrainVersion.get();
+	}
+
+	void terrainChanged() {
+		this.terrainVersion.incrementAndGet();
+	}
+
+	// Dono atual da célula: FREE, id + 1 do robô ou negativo se for um baú já aberto
+	public int getOccupant(int cell) {
+		return this.occupancy.get(cell);
+	}
+
+	// Coloca o robô id na célula, se ela estiver livre; devolve a visão do robô ou null
+	public Map join(int robotId, int cell) {
+		if (!Tile.isFree(this.map.getTile(cell)) || !this.occupancy.compareAndSet(cell, FREE, robotId + 1)) {
+			return null;
+		}
+		this.map.placeTile(cell, Tile.ROBOT);
+		return new Map(this.map, this, cell);
+	}
+
+	// Coloca o robô id numa célula livre sorteada
+	public Map joinAtRandom(int robotId, SplittableRandom random) {
+		int cellCount = Math.toIntExact(this.map.getCellCount());
+		for (int attempt = 0; attempt < cellCount * 4; attempt++) {
+			Map view = join(robotId, random.nextInt(cellCount));
+			if (view != null) {
+				return view;
+			}
+		}
+		throw new IllegalStateException("Não há célula livre para mais um robô");
+	}
+
+	// Move o robô para nextCell se conseguir tomar posse dela; false se outro robô chegou antes
+	public boolean moveRobot(Map view, int robotId, int nextCell) {
+		if (!this.occupancy.compareAndSet(nextCell, FREE, robotId + 1)) {
+			return false;
+		}
+		int previous = view.getRobotCell();
+		view.moveRobot(nextCell);
+		// A célula antiga só é liberada depois de marcada como vazia no cenário
+		this.occupancy.set(previous, FREE);
+		return true;
+	}
+
+	// Abre o baú em cell; devolve o conteúdo para o único robô que conseguir, Tile.NONE aos demais
+	public byte openTreasureChest(Map view, int cell) {
+		if (!this.occupancy.compareAndSet(cell, FREE, OPENED)) {
+			return Tile.NONE;
+		}
+		// Um baú vazio já revelado e liberado por outro robô não é aberto de novo
+		if (view.getTile(cell) != Tile.TREASURE_CHEST) {
+			this.occupancy.set(cell, FREE);
+			return Tile.NONE;
+		}
+		byte content = view.revealTreasureChest(cell);
+		if (content == Tile.NONE || content == Tile.CHEST_EMPTY) {
+			// Não era um baú, ou estava vazio: devolve a célula, que já mostra o conteúdo
+			this.occupancy.set(cell, FREE);
+		}
+		return content;
+	}
+
+	// Retira o robô do tabuleiro, liberando a célula
+	public void leave(Map view, int robotId) {
+		int cell = view.getRobotCell();
+		this.map.placeTile(cell, Tile.EMPTY);
+		this.occupancy.compareAndSet(cell, robotId + 1, FREE);
+	}
+}
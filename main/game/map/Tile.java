@@ -0,0 +1,67 @@
+package main.game.map;
+
+import main.game.Player;
+
+public final class Tile {
+	// Célula nunca ocupada (equivale ao null do cenário em String[][])
+	public static final byte NONE = 0;
+	public static final byte EMPTY = 1;
+	public static final byte ROBOT = 2;
+	public static final byte ROCK = 3;
+	public static final byte MONSTER = 4;
+	public static final byte MAP_OF_TREASURE = 5;
+	public static final byte TREASURE_CHEST = 6;
+	public static final byte CHEST_TREASURE = 7;
+	public static final byte CHEST_TRAP = 8;
+	public static final byte CHEST_EMPTY = 9;
+
+	public static final String EMPTY_CHARACTER = "*";
+
+	private static final String[] CHARACTERS = {
+		null,
+		EMPTY_CHARACTER,
+		Player.CHARACTER,
+		Rock.CHARACTER,
+		Monster.CHARACTER,
+		MapOfTreasure.CHARACTER,
+		TreasureChest.CHARACTER,
+		TreasureChest.CHEST_TRESURE_CHARACTER,
+		TreasureChest.CHEST_TRAP_CHARACTER,
+		TreasureChest.CHEST_EMPTY_CHARACTER
+	};
+
+	private Tile() {
+	}
+
+	public static String toCharacter(byte tile) {
+		return CHARACTERS[tile];
+	}
+
+	public static byte fromCharacter(String character) {
+		if (character == null) {
+			return NONE;
+		}
+		for (byte tile = EMPTY; tile < CHARACTERS.length; tile++) {
+			if (CHARACTERS[tile].equals(character)) {
+				return tile;
+			}
+		}
+		throw new IllegalArgumentException("Caractere desconhecido: " + character);
+	}
+
+	// Equivale a "content == null || content.equals("*")" das estratégias
+	public static boolean isFree(byte tile) {
+		return tile <= EMPTY;
+	}
+
+	// Rochas e monstros bloqueiam a passagem em buscas de caminho
+	public static boolean isPassable(byte tile) {
+		return tile != ROCK && tile != MONSTER;
+	}
+
+	// O que FewerObstacles conta ao redor de uma célula: tudo que não é livre, menos o robô,
+	// que é vizinho de todos os candidatos e não muda a escolha
+	public static boolean isObstacle(byte tile) {
+		return tile > ROBOT;
+	}
+}
@@ -0,0 +1,41 @@
+package main.game.map;
+
+import java.util.Arrays;
+
+// Registro das mudanças de um Map desde Map.mark(), para desfazê-las em ordem inversa com
+// Map.rollback(). Cada entrada é um par (valor long, tipo): o tipo é o Tile anterior da célula,
+// ou ROBOT_MOVE (valor = célula anterior do robô), ou TERRAIN_VERSION (valor = versão anterior).
+final class UndoLog {
+	static final byte ROBOT_MOVE = -1;
+	static final byte TERRAIN_VERSION = -2;
+
+	private long[] values = new long[64];
+	private byte[] kinds = new byte[64];
+	private int size;
+
+	void add(long value, byte kind) {
+		if (this.size == this.values.length) {
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+			this.kinds = Arrays.copyOf(this.kinds, this.size * 2);
+		}
+		this.values[this.size] = value;
+		this.kinds[this.size] = kind;
+		this.size++;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	long valueAt(int index) {
+		return this.values[index];
+	}
+
+	byte kindAt(int index) {
+		return this.kinds[index];
+	}
+
+	void truncate(int size) {
+		this.size = size;
+	}
+}
@@ -0,0 +1,250 @@
+package main.strategies;
+
+import java.util.Arrays;
+import java.util.List;
+import main.game.map.Map;
+import main.game.map.Point;
+import main.game.map.Tile;
+
+public class AStar implements Strategy {
+    // Com muitos baús a heurística (mínimo sobre todos) fica cara; aí vira Dijkstra (h = 0)
+    private static final int MAX_HEURISTIC_TARGETS = 16;
+
+    // Buffers reaproveitados entre chamadas; uma célula só é válida se seu carimbo
+    // for igual à busca atual, então nada precisa ser limpo entre buscas
+    private int[] gScore;
+    private int[] parent;
+    private int[] openStamp;
+    private int[] closedStamp;
+    private int search;
+
+    // Heap binário de mínimo sobre (f, h), com remoção preguiçosa. Desempatar por h
+    // evita expandir o retângulo inteiro de nós com o mesmo f em mapas abertos
+    private int[] heapCells;
+    private long[] heapPriorities;
+    private int heapSize;
+
+    private int[] targets;
+    private int targetCount;
+    private final int[] neighbours;
+
+    // Caminho planejado, do primeiro passo até o baú
+    private int[] path;
+    private int pathLength;
+    private int pathIndex;
+    private Map plannedMap;
+    private int plannedTerrainVersion;
+    private int expectedRobotCell;
+
+    // Decide nos mapas acima de Integer.MAX_VALUE células (ver evaluatePossbileNextStep)
+    private final Rollback fallback;
+
+    public AStar() {
+        this.gScore = new int[0];
+        this.parent = new int[0];
+        this.openStamp = new int[0];
+        this.closedStamp = new int[0];
+        this.heapCells = new int[64];
+        this.heapPriorities = new long[64];
+        this.targets = new int[MAX_HEURISTIC_TARGETS];
+        this.neighbours = new int[4];
+        this.path = new int[64];
+        this.fallback = new Rollback();
+    }
+
+    @Override
+    public void reset() {
+        this.plannedMap = null;
+        this.pathLength = 0;
+        this.pathIndex = 0;
+        this.fallback.reset();
+    }
+
+    // Os buffers da busca têm uma entrada por célula do mapa, o que não cabe em mapas acima de
+    // Integer.MAX_VALUE células. Nesses a decisão fica com Rollback, que só guarda as células visitadas
+    @Override
+    public Point evaluatePossbileNextStep(List<Point> possibleNextSteps, Map map) {
+        if (!map.isCellIndexed()) {
+            return fallback.evaluatePossbileNextStep(possibleNextSteps, map);
+        }
+        int[] cells = new int[possibleNextSteps.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = map.cellIndex(possibleNextSteps.get(i));
+        }
+        int nextCell = evaluatePossibleNextCell(cells, cells.length, map);
+        return nextCell < 0 ? null : map.toPoint(nextCell);
+    }
+
+    @Override
+    public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+        if (count == 0) {
+            return -1;
+        }
+
+        int robotCell = map.getRobotCell();
+        if (map != plannedMap || map.getTerrainVersion() != plannedTerrainVersion || robotCell != expectedRobotCell) {
+            plan(map, robotCell);
+        }
+
+        if (pathIndex < pathLength) {
+            int nextCell = path[pathIndex];
+            for (int i = 0; i < count; i++) {
+                if (cells[i] == nextCell) {
+                    pathIndex++;
+                    expectedRobotCell = nextCell;
+                    return nextCell;
+                }
+            }
+        }
+
+        // Sem caminho até um baú: qualquer vizinho transitável
+        for (int i = 0; i < count; i++) {
+            if (Tile.isPassable(map.getTile(cells[i]))) {
+                return cells[i];
+            }
+        }
+        return cells[0];
+    }
+
+    private void plan(Map map, int start) {
+        int cellCount = map.getSizeX() * map.getSizeY();
+        if (gScore.length != cellCount) {
+            gScore = new int[cellCount];
+            parent = new int[cellCount];
+            openStamp = new int[cellCount];
+            closedStamp = new int[cellCount];
+            search = 0;
+        }
+        plannedMap = map;
+        plannedTerrainVersion = map.getTerrainVersion();
+        expectedRobotCell = start;
+        pathLength = 0;
+        pathIndex = 0;
+
+        collectTargets(map, cellCount);
+        if (targetCount == 0) {
+            return;
+        }
+
+        search++;
+        heapSize = 0;
+        gScore[start] = 0;
+        parent[start] = -1;
+        openStamp[start] = search;
+        push(start, 0, heuristic(map, start));
+
+        while (heapSize > 0) {
+            int current = pop();
+            if (closedStamp[current] == search) {
+                continue;
+            }
+            closedStamp[current] = search;
+
+            if (current != start && map.getTile(current) == Tile.TREASURE_CHEST) {
+                buildPath(start, current);
+                return;
+            }
+
+            int count = map.neighbourCells(current, neighbours);
+            for (int i = 0; i < count; i++) {
+                int next = neighbours[i];
+                if (closedStamp[next] == search || !Tile.isPassable(map.getTile(next))) {
+                    continue;
+                }
+                int tentative = gScore[current] + 1;
+                if (openStamp[next] != search || tentative < gScore[next]) {
+                    openStamp[next] = search;
+                    gScore[next] = tentative;
+                    parent[next] = current;
+                    push(next, tentative, heuristic(map, next));
+                }
+            }
+        }
+    }
+
+    private void collectTargets(Map map, int cellCount) {
+        targetCount = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (map.getTile(cell) == Tile.TREASURE_CHEST) {
+                if (targetCount < MAX_HEURISTIC_TARGETS) {
+                    targets[targetCount] = cell;
+                }
+                targetCount++;
+            }
+        }
+    }
+
+    private int heuristic(Map map, int cell) {
+        if (targetCount > MAX_HEURISTIC_TARGETS) {
+            return 0;
+        }
+        int x = map.cellX(cell);
+        int y = map.cellY(cell);
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < targetCount; i++) {
+            int distance = Math.abs(map.cellX(targets[i]) - x) + Math.abs(map.cellY(targets[i]) - y);
+            if (distance < best) {
+                best = distance;
+            }
+        }
+        return best;
+    }
+
+    private void buildPath(int start, int target) {
+        int length = 0;
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            length++;
+        }
+        if (path.length < length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int index = length;
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            path[--index] = cell;
+        }
+        pathLength = length;
+    }
+
+    private void push(int cell, int g, int h) {
+        long priority = ((long) (g + h) << 32) | h;
+        if (heapSize == heapCells.length) {
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+            heapPriorities = Arrays.copyOf(heapPriorities, heapSize * 2);
+        }
+        int index = heapSize++;
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            if (heapPriorities[parentIndex] <= priority) {
+                break;
+            }
+            heapCells[index] = heapCells[parentIndex];
+            heapPriorities[index] = heapPriorities[parentIndex];
+            index = parentIndex;
+        }
+        heapCells[index] = cell;
+        heapPriorities[index] = priority;
+    }
+
+    private int pop() {
+        int top = heapCells[0];
+        int lastCell = heapCells[--heapSize];
+        long lastPriority = heapPriorities[heapSize];
+        int index = 0;
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && heapPriorities[child + 1] < heapPriorities[child]) {
+                child++;
+            }
+            if (heapPriorities[child] >= lastPriority) {
+                break;
+            }
+            heapCells[index] = heapCells[child];
+            heapPriorities[index] = heapPriorities[child];
+            index = child;
+        }
+        heapCells[index] = lastCell;
+        heapPriorities[index] = lastPriority;
+        return top;
+    }
+}
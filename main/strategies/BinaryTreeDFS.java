@@ -1,170 +1,236 @@
 package main.strategies;
 
 import java.util.List;
-import java.util.ArrayList;
+import java.util.SplittableRandom;
 import main.game.map.Map;
 import main.game.map.Point;
-import main.game.map.TreasureChest;
+import main.game.map.Tile;
 
 public class BinaryTreeDFS implements Strategy {
+    // Acima disso a tabela de distâncias ao centro custaria memória demais; calcula na hora
+    private static final int MAX_TABLE_CELLS = 1 << 22;
+
+    // Gerador próprio da instância: nada de Math.random(), que é compartilhado entre threads
+    private SplittableRandom random;
+    private boolean explain;
+    private String lastExplanation;
+
+    // Penalidade de distância ao centro (2 * distância euclidiana) de cada célula,
+    // calculada uma vez por tamanho de mapa
+    private double[] centreCost;
+    private int tableSizeX = -1;
+    private int tableSizeY = -1;
+
+    // Pontuação de cada candidato do passo atual, calculada uma única vez
+    private double[] scores;
+    private int[] candidateX;
+    private int[] candidateY;
+
     private class TreeNode {
-        Point point;
+        int candidate;
         double value;
         TreeNode left;
         TreeNode right;
 
-        TreeNode(Point point, double value) {
-            this.point = point;
+        TreeNode(int candidate, double value) {
+            this.candidate = candidate;
             this.value = value;
             this.left = null;
             this.right = null;
         }
     }
 
-    @Override
-    public Point evaluatePossbileNextStep(List<Point> possibleNextStep, Map map) {
-        if (possibleNextStep.isEmpty()) {
-            return null;
-        }
-
-        // Criar árvore binária com os possíveis próximos passos
-        TreeNode root = buildTree(possibleNextStep, map);
-        
-        // Realizar busca em profundidade para encontrar o melhor caminho
-        return findBestPath(root);
+    public BinaryTreeDFS() {
+        this(new SplittableRandom());
     }
 
-    private TreeNode buildTree(List<Point> points, Map map) {
-        if (points.isEmpty()) {
-            return null;
-        }
-
-        // Calcular valor para cada ponto baseado em múltiplos fatores
-        final Point selectedPoint = findBestPoint(points, map);
-        final double selectedValue = evaluatePoint(selectedPoint, map);
+    // Mesma semente, mesmas decisões
+    public BinaryTreeDFS(long seed) {
+        this(new SplittableRandom(seed));
+    }
 
-        // Criar nó raiz com o melhor ponto
-        TreeNode root = new TreeNode(selectedPoint, selectedValue);
+    private BinaryTreeDFS(SplittableRandom random) {
+        this.random = random;
+        this.scores = new double[4];
+        this.candidateX = new int[4];
+        this.candidateY = new int[4];
+    }
 
-        // Dividir pontos restantes em duas listas baseado em sua posição relativa
-        List<Point> leftPoints = new ArrayList<>();
-        List<Point> rightPoints = new ArrayList<>();
-        
-        for (Point point : points) {
-            if (point.equals(selectedPoint)) {
-                continue;
-            }
-            if (isLeftOf(point, selectedPoint)) {
-                leftPoints.add(point);
-            } else {
-                rightPoints.add(point);
-            }
-        }
+    @Override
+    public void reset(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
 
-        // Recursivamente construir subárvores
-        root.left = buildTree(leftPoints, map);
-        root.right = buildTree(rightPoints, map);
+    // Com explain ligado, cada decisão também monta a árvore binária original sobre as
+    // pontuações já calculadas, para inspeção com getLastExplanation()
+    public void setExplain(boolean explain) {
+        this.explain = explain;
+    }
 
-        return root;
+    public String getLastExplanation() {
+        return this.lastExplanation;
     }
 
-    private Point findBestPoint(List<Point> points, Map map) {
-        Point bestPoint = points.get(0);
-        double bestValue = evaluatePoint(bestPoint, map);
+    @Override
+    public Point evaluatePossbileNextStep(List<Point> possibleNextStep, Map map) {
+        int count = possibleNextStep.size();
+        if (count == 0) {
+            return null;
+        }
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            Point point = possibleNextStep.get(i);
+            candidateX[i] = point.getPositionX();
+            candidateY[i] = point.getPositionY();
+            scores[i] = score(map, candidateX[i], candidateY[i], map.getTile(point));
+        }
+        return possibleNextStep.get(choose(count));
+    }
 
-        for (Point point : points) {
-            double value = evaluatePoint(point, map);
-            if (value > bestValue) {
-                bestPoint = point;
-                bestValue = value;
-            }
+    @Override
+    public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+        if (count == 0) {
+            return -1;
+        }
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            candidateX[i] = map.cellX(cells[i]);
+            candidateY[i] = map.cellY(cells[i]);
+            scores[i] = score(map, candidateX[i], candidateY[i], map.getTile(cells[i]));
         }
+        return cells[choose(count)];
+    }
 
-        return bestPoint;
+    private void ensureCapacity(int count) {
+        if (scores.length < count) {
+            scores = new double[count];
+            candidateX = new int[count];
+            candidateY = new int[count];
+        }
     }
 
-    private boolean isLeftOf(Point p1, Point p2) {
-        // Determina se um ponto está à esquerda de outro
-        // Primeiro compara X, depois Y em caso de empate
-        if (p1.getPositionX() != p2.getPositionX()) {
-            return p1.getPositionX() < p2.getPositionX();
+    // A árvore original sempre devolvia o nó de maior valor (a raiz é o máximo do seu
+    // conjunto); com cada candidato pontuado uma vez, isso é só o primeiro máximo
+    private int choose(int count) {
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
         }
-        return p1.getPositionY() < p2.getPositionY();
+        if (explain) {
+            int[] candidates = new int[count];
+            for (int i = 0; i < count; i++) {
+                candidates[i] = i;
+            }
+            StringBuilder out = new StringBuilder();
+            describe(buildTree(candidates, count), "", out);
+            lastExplanation = out.toString();
+        }
+        return best;
     }
 
-    private double evaluatePoint(Point point, Map map) {
+    private double score(Map map, int x, int y, byte tile) {
         double value = 0.0;
-        String content = map.get(point);
 
         // Priorizar baús de tesouro
-        if (TreasureChest.CHARACTER.equals(content)) {
+        if (tile == Tile.TREASURE_CHEST) {
             value += 100.0;
         }
 
         // Evitar obstáculos
-        if (content != null && !content.equals("*")) {
+        if (!Tile.isFree(tile)) {
             value -= 50.0;
         }
 
         // Considerar distância do centro do mapa
-        int[] mapSize = map.getScenarioSize();
-        int centerX = mapSize[0] / 2;
-        int centerY = mapSize[1] / 2;
-        double distanceToCenter = Math.sqrt(
-            Math.pow(point.getPositionX() - centerX, 2) +
-            Math.pow(point.getPositionY() - centerY, 2)
-        );
-        value -= distanceToCenter * 2;
+        value -= centreCost(map, x, y);
 
         // Adicionar pequena aleatoriedade para evitar loops
-        value += Math.random() * 5;
+        value += random.nextDouble() * 5;
 
         return value;
     }
 
-    private Point findBestPath(TreeNode root) {
-        if (root == null) {
-            return null;
+    private double centreCost(Map map, int x, int y) {
+        int sizeX = map.getSizeX();
+        int sizeY = map.getSizeY();
+        if (sizeX != tableSizeX || sizeY != tableSizeY) {
+            tableSizeX = sizeX;
+            tableSizeY = sizeY;
+            centreCost = (long) sizeX * sizeY <= MAX_TABLE_CELLS ? buildCentreCostTable(sizeX, sizeY) : null;
+        }
+        if (centreCost != null) {
+            return centreCost[x * sizeY + y];
         }
+        long dx = x - sizeX / 2;
+        long dy = y - sizeY / 2;
+        return Math.sqrt(dx * dx + dy * dy) * 2;
+    }
 
-        // Inicializar com o valor do nó raiz
-        Point bestPoint = root.point;
-        double bestValue = root.value;
+    private static double[] buildCentreCostTable(int sizeX, int sizeY) {
+        double[] table = new double[sizeX * sizeY];
+        int centerX = sizeX / 2;
+        int centerY = sizeY / 2;
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                int dx = x - centerX;
+                int dy = y - centerY;
+                table[x * sizeY + y] = Math.sqrt(dx * dx + dy * dy) * 2;
+            }
+        }
+        return table;
+    }
 
-        // Busca em profundidade no lado esquerdo
-        if (root.left != null) {
-            double leftValue = dfsSearch(root.left);
-            if (leftValue > bestValue) {
-                bestValue = leftValue;
-                bestPoint = root.left.point;
+    // Árvore da versão original: raiz é o melhor candidato, à esquerda os que vêm antes
+    // dele (x menor, depois y menor), à direita os demais. Só para explicação.
+    private TreeNode buildTree(int[] candidates, int count) {
+        if (count == 0) {
+            return null;
+        }
+        int best = candidates[0];
+        for (int i = 1; i < count; i++) {
+            if (scores[candidates[i]] > scores[best]) {
+                best = candidates[i];
             }
         }
 
-        // Busca em profundidade no lado direito
-        if (root.right != null) {
-            double rightValue = dfsSearch(root.right);
-            if (rightValue > bestValue) {
-                bestValue = rightValue;
-                bestPoint = root.right.point;
+        int[] left = new int[count];
+        int[] right = new int[count];
+        int leftCount = 0;
+        int rightCount = 0;
+        for (int i = 0; i < count; i++) {
+            int candidate = candidates[i];
+            if (candidate == best) {
+                continue;
+            }
+            if (isLeftOf(candidate, best)) {
+                left[leftCount++] = candidate;
+            } else {
+                right[rightCount++] = candidate;
             }
         }
 
-        return bestPoint;
+        TreeNode root = new TreeNode(best, scores[best]);
+        root.left = buildTree(left, leftCount);
+        root.right = buildTree(right, rightCount);
+        return root;
     }
 
-    private double dfsSearch(TreeNode node) {
-        if (node == null) {
-            return Double.NEGATIVE_INFINITY;
+    private boolean isLeftOf(int a, int b) {
+        if (candidateX[a] != candidateX[b]) {
+            return candidateX[a] < candidateX[b];
         }
+        return candidateY[a] < candidateY[b];
+    }
 
-        // Valor do nó atual
-        double value = node.value;
-
-        // Recursivamente buscar o maior valor nas subárvores
-        double leftValue = dfsSearch(node.left);
-        double rightValue = dfsSearch(node.right);
-
-        // Retornar o maior valor encontrado
-        return Math.max(value, Math.max(leftValue, rightValue));
+    private void describe(TreeNode node, String indent, StringBuilder out) {
+        if (node == null) {
+            return;
+        }
+        out.append(indent).append(candidateX[node.candidate]).append(',').append(candidateY[node.candidate])
+            .append(String.format(" = %.2f", node.value)).append('\n');
+        describe(node.left, indent + "  L ", out);
+        describe(node.right, indent + "  R ", out);
     }
-}
\ No newline at end of file
+}
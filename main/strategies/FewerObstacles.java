@@ -3,8 +3,23 @@ package main.strategies;
 import java.util.List;
 import main.game.map.Map;
 import main.game.map.Point;
+import main.game.map.Tile;
 
 public class FewerObstacles implements Strategy {
+	// Raio da vizinhança considerada; 1 é a vizinhança de 8 células original
+	private final int radius;
+
+	public FewerObstacles() {
+		this(1);
+	}
+
+	// Raios maiores usam a tabela de somas do mapa e continuam em tempo constante por candidato
+	public FewerObstacles(int radius) {
+		if (radius < 1) {
+			throw new IllegalArgumentException("O raio deve ser pelo menos 1");
+		}
+		this.radius = radius;
+	}
 
 	@Override
 	public Point evaluatePossbileNextStep(List<Point> possibleNextStep, Map map) {
@@ -13,46 +28,59 @@ public class FewerObstacles implements Strategy {
 
 		// Avalia todos os próximos pontos possíveis e encontra o que tem menos obstáculos
 		for (Point nextPoint : possibleNextStep) {
-			int obstacleCount = countAdjacentObstacles(nextPoint, map);
+			int obstacleCount = map.isCellIndexed()
+				? countObstacles(map.cellIndex(nextPoint), map)
+				: countAdjacentObstacles(nextPoint.getPositionX(), nextPoint.getPositionY(), map);
 			if (obstacleCount < minObstacleCount) {
 				minObstacleCount = obstacleCount;
 				bestPoint = nextPoint;
-				break;
 			}
 		}
 		return bestPoint;
 	}
 
-	private int countAdjacentObstacles(Point point, Map map) {
+	@Override
+	public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+		int minObstacleCount = Integer.MAX_VALUE;
+		int bestCell = -1;
+
+		for (int i = 0; i < count; i++) {
+			int obstacleCount = countObstacles(cells[i], map);
+			if (obstacleCount < minObstacleCount) {
+				minObstacleCount = obstacleCount;
+				bestCell = cells[i];
+			}
+		}
+		return bestCell;
+	}
+
+	private int countObstacles(int cell, Map map) {
+		if (this.radius == 1) {
+			return map.getAdjacentObstacleCount(cell);
+		}
+		return map.getObstacleCountWithin(cell, this.radius);
+	}
+
+	// Varredura direta, só para mapas grandes demais para índices int
+	private int countAdjacentObstacles(int x, int y, Map map) {
 		int count = 0;
-		int x = point.getPositionX();
-		int y = point.getPositionY();
 
 		// Obtém as dimensões do mapa
-		int[] mapSize = map.getScenarioSize();  // [largura, altura]
-		int mapWidth = mapSize[0];
-		int mapHeight = mapSize[1];
-
-		// Verifica todos os 8 quadrantes ao redor do ponto (incluindo diagonais)
-		for (int dx = -1; dx <= 1; dx++) {
-			for (int dy = -1; dy <= 1; dy++) {
-				if (dx == 0 && dy == 0) continue; // Ignora o ponto central
-
-				int newX = x + dx;
-				int newY = y + dy;
-
-				// Verifica se as novas coordenadas estão dentro dos limites do mapa
-				if (newX >= 0 && newX < mapWidth && newY >= 0 && newY < mapHeight) {
-					// Obtém o conteúdo do ponto adjacente
-					String content = map.get(new Point(newX, newY));
-					// Considera como obstáculo qualquer coisa diferente de "*"
-					if (content != null && !content.equals("*")) {
-						count++; // Conta como um obstáculo
-					}
+		int fromX = Math.max(x - this.radius, 0);
+		int toX = Math.min(x + this.radius, map.getSizeX() - 1);
+		int fromY = Math.max(y - this.radius, 0);
+		int toY = Math.min(y + this.radius, map.getSizeY() - 1);
+
+		// Verifica todas as células ao redor do ponto (incluindo diagonais)
+		for (int newX = fromX; newX <= toX; newX++) {
+			for (int newY = fromY; newY <= toY; newY++) {
+				if (newX == x && newY == y) continue; // Ignora o ponto central
+
+				if (Tile.isObstacle(map.getTile(newX, newY))) {
+					count++; // Conta como um obstáculo
 				}
-				break;
 			}
 		}
 		return count;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,344 @@
+package main.strategies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import main.game.map.Map;
+import main.game.map.Point;
+import main.game.map.Tile;
+
+// Busca em árvore de Monte Carlo (UCT) a partir da posição do robô, paralela na raiz: cada
+// trabalhador do ForkJoinPool comum monta sua própria árvore com a sua parte do orçamento, e no
+// fim as visitas de cada vizinho são somadas. Vence o vizinho mais visitado.
+// A estratégia só enxerga o que está no cenário: todo baú fechado vale o mesmo, porque o conteúdo
+// escondido não é consultado. Abrir um baú encerra o episódio, então um rollout não muda nada no
+// mapa além da posição do robô e não precisa de cópia: o estado é só a célula atual.
+public class MonteCarloTreeSearch implements Strategy {
+    // Em 2000 mapas 8x8, 100 iterações vencem tanto quanto 1000 (32,9% contra 32,5%) em 1/11 do tempo
+    private static final int DEFAULT_ITERATIONS = 100;
+    // Mesmo limite de passos de CustomGame
+    private static final int MAX_STEPS = 100;
+    // Recompensa por chegar a um baú fechado em d passos: DISCOUNT^d, para preferir os mais próximos
+    private static final double DISCOUNT = 0.98;
+    private static final double EXPLORATION = Math.sqrt(2);
+    // Fração dos passos de rollout sorteados; os demais seguem a distância até o baú mais próximo
+    private static final double ROLLOUT_RANDOMNESS = 0.25;
+    // Consulta ao relógio a cada tantas iterações no modo por tempo
+    private static final int CLOCK_CHECK_INTERVAL = 16;
+
+    private final int iterations;
+    private final long timeBudgetNanos;
+    private final int workers;
+    private SplittableRandom random;
+    // Decide nos mapas acima de Integer.MAX_VALUE células (ver evaluatePossbileNextStep)
+    private final Rollback fallback;
+
+    private long rollouts;
+    private long searchNanos;
+
+    // Orçamento padrão de iterações por decisão, dividido entre os núcleos do pool comum
+    public MonteCarloTreeSearch() {
+        this(DEFAULT_ITERATIONS, 0, ForkJoinPool.getCommonPoolParallelism(), new SplittableRandom());
+    }
+
+    // Orçamento fixo de iterações por decisão; com a mesma semente, mesmas decisões
+    public MonteCarloTreeSearch(int iterations, int workers, long seed) {
+        this(iterations, 0, workers, new SplittableRandom(seed));
+    }
+
+    // Orçamento por tempo: cada trabalhador itera até timeBudgetNanos depois do início da decisão
+    public static MonteCarloTreeSearch withTimeBudget(long timeBudgetNanos, int workers) {
+        return new MonteCarloTreeSearch(Integer.MAX_VALUE, timeBudgetNanos, workers, new SplittableRandom());
+    }
+
+    private MonteCarloTreeSearch(int iterations, long timeBudgetNanos, int workers, SplittableRandom random) {
+        if (iterations < 1 || workers < 1 || timeBudgetNanos < 0) {
+            throw new IllegalArgumentException("Orçamento e trabalhadores devem ser positivos");
+        }
+        this.iterations = iterations;
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.workers = workers;
+        this.random = random;
+        this.fallback = new Rollback();
+    }
+
+    @Override
+    public void reset() {
+        this.fallback.reset();
+    }
+
+    // Cada árvore tem seu próprio gerador, dividido deste; com orçamento de iterações as decisões
+    // se repetem para a mesma semente, qualquer que seja o número de trabalhadores. No modo por
+    // tempo o número de iterações depende do relógio e não há essa garantia
+    @Override
+    public void reset(long seed) {
+        reset();
+        this.random = new SplittableRandom(seed);
+    }
+
+    // Rollouts (iterações) feitos em todas as decisões desde a criação
+    public long getRollouts() {
+        return this.rollouts;
+    }
+
+    // Vazão da busca, contando só o tempo de relógio gasto dentro das decisões
+    public double getRolloutsPerSecond() {
+        return this.searchNanos == 0 ? 0.0 : this.rollouts * 1e9 / this.searchNanos;
+    }
+
+    public double getRolloutsPerSecondPerWorker() {
+        return getRolloutsPerSecond() / this.workers;
+    }
+
+    // Tempo de relógio gasto dentro das decisões desde a criação
+    public long getSearchNanos() {
+        return this.searchNanos;
+    }
+
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    // Os rollouts seguem o campo de distâncias, com uma entrada por célula do mapa, o que não cabe em mapas acima de
+    // Integer.MAX_VALUE células. Nesses a decisão fica com Rollback, como em AStar
+    @Override
+    public Point evaluatePossbileNextStep(List<Point> possibleNextSteps, Map map) {
+        if (!map.isCellIndexed()) {
+            return fallback.evaluatePossbileNextStep(possibleNextSteps, map);
+        }
+        int[] cells = new int[possibleNextSteps.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = map.cellIndex(possibleNextSteps.get(i));
+        }
+        int nextCell = evaluatePossibleNextCell(cells, cells.length, map);
+        return nextCell < 0 ? null : map.toPoint(nextCell);
+    }
+
+    @Override
+    public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+        if (count == 0) {
+            return -1;
+        }
+        // Baú ao lado: não há o que simular, todos valem o mesmo
+        for (int i = 0; i < count; i++) {
+            if (map.getTile(cells[i]) == Tile.TREASURE_CHEST) {
+                return cells[i];
+            }
+        }
+
+        // O horizonte só depende do mapa, limitado aos passos de um episódio inteiro: a estratégia não vê o
+        // contador de passos da partida, e um contador próprio de decisões sai de sincronia com ele
+        int horizon = (int) Math.min(MAX_STEPS + 1, 2L * (map.getSizeX() + map.getSizeY()));
+        // O campo de distâncias é montado aqui, antes de os trabalhadores lerem em paralelo
+        map.getChestDistance(map.getRobotCell());
+
+        long start = System.nanoTime();
+        long deadline = this.timeBudgetNanos > 0 ? start + this.timeBudgetNanos : Long.MAX_VALUE;
+        int[] root = Arrays.copyOf(cells, count);
+        List<SearchTask> tasks = new ArrayList<>(this.workers);
+        for (int w = 0; w < this.workers; w++) {
+            int budget = this.iterations / this.workers + (w < this.iterations % this.workers ? 1 : 0);
+            tasks.add(new SearchTask(map, root, horizon, Math.max(budget, 1), deadline, this.random.split()));
+        }
+        if (this.workers == 1) {
+            tasks.get(0).invoke();
+        } else {
+            RecursiveTask.invokeAll(tasks);
+        }
+
+        long[] visits = new long[count];
+        double[] values = new double[count];
+        for (SearchTask task : tasks) {
+            Tree tree = task.join();
+            this.rollouts += tree.iterations;
+            for (int i = 0; i < count; i++) {
+                visits[i] += tree.visits[1 + i];
+                values[i] += tree.values[1 + i];
+            }
+        }
+        this.searchNanos += System.nanoTime() - start;
+
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (visits[i] > visits[best] || (visits[i] == visits[best] && values[i] > values[best])) {
+                best = i;
+            }
+        }
+        return cells[best];
+    }
+
+    private static class SearchTask extends RecursiveTask<Tree> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Map map;
+        private final int[] root;
+        private final int horizon;
+        private final int budget;
+        private final long deadline;
+        private final transient SplittableRandom random;
+
+        SearchTask(Map map, int[] root, int horizon, int budget, long deadline, SplittableRandom random) {
+            this.map = map;
+            this.root = root;
+            this.horizon = horizon;
+            this.budget = budget;
+            this.deadline = deadline;
+            this.random = random;
+        }
+
+        @Override
+        protected Tree compute() {
+            Tree tree = new Tree(this.map, this.root, this.horizon, this.random);
+            for (int i = 0; i < this.budget; i++) {
+                if (i % CLOCK_CHECK_INTERVAL == 0 && this.deadline != Long.MAX_VALUE && System.nanoTime() >= this.deadline) {
+                    break;
+                }
+                tree.iterate();
+            }
+            return tree;
+        }
+    }
+
+    // Árvore UCT de um trabalhador, em arrays paralelos. Os filhos de um nó são criados todos de
+    // uma vez e ficam contíguos; o nó 0 é a posição atual e os nós 1..count são os candidatos.
+    private static class Tree {
+        private final Map map;
+        private final int horizon;
+        private final SplittableRandom random;
+        private final int[] neighbours = new int[4];
+
+        private int[] cells;
+        private int[] parents;
+        private int[] depths;
+        private int[] firstChildren;
+        private byte[] childCounts;
+        private int[] visits;
+        private double[] values;
+        private int size;
+        private long iterations;
+
+        Tree(Map map, int[] root, int horizon, SplittableRandom random) {
+            this.map = map;
+            this.horizon = horizon;
+            this.random = random;
+            int capacity = 64;
+            this.cells = new int[capacity];
+            this.parents = new int[capacity];
+            this.depths = new int[capacity];
+            this.firstChildren = new int[capacity];
+            this.childCounts = new byte[capacity];
+            this.visits = new int[capacity];
+            this.values = new double[capacity];
+
+            add(map.getRobotCell(), -1, 0);
+            this.firstChildren[0] = this.size;
+            this.childCounts[0] = (byte) root.length;
+            for (int cell : root) {
+                add(cell, 0, 1);
+            }
+        }
+
+        private int add(int cell, int parent, int depth) {
+            if (this.size == this.cells.length) {
+                int capacity = this.size * 2;
+                this.cells = Arrays.copyOf(this.cells, capacity);
+                this.parents = Arrays.copyOf(this.parents, capacity);
+                this.depths = Arrays.copyOf(this.depths, capacity);
+                this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+                this.childCounts = Arrays.copyOf(this.childCounts, capacity);
+                this.visits = Arrays.copyOf(this.visits, capacity);
+                this.values = Arrays.copyOf(this.values, capacity);
+            }
+            int node = this.size++;
+            this.cells[node] = cell;
+            this.parents[node] = parent;
+            this.depths[node] = depth;
+            this.firstChildren[node] = -1;
+            return node;
+        }
+
+        void iterate() {
+            this.iterations++;
+            // Seleção: desce pelos nós já expandidos escolhendo pelo UCB1
+            int node = 0;
+            while (this.firstChildren[node] >= 0 && !isTerminal(node)) {
+                node = select(node);
+            }
+            // Expansão: um nó já visitado ganha seus filhos e a simulação parte do primeiro
+            if (!isTerminal(node) && this.visits[node] > 0) {
+                int count = this.map.neighbourCells(this.cells[node], this.neighbours);
+                this.firstChildren[node] = this.size;
+                this.childCounts[node] = (byte) count;
+                for (int i = 0; i < count; i++) {
+                    add(this.neighbours[i], node, this.depths[node] + 1);
+                }
+                node = this.firstChildren[node];
+            }
+
+            double reward = isChest(node) ? Math.pow(DISCOUNT, this.depths[node]) : rollout(this.cells[node], this.depths[node]);
+            for (int n = node; n >= 0; n = this.parents[n]) {
+                this.visits[n]++;
+                this.values[n] += reward;
+            }
+        }
+
+        private boolean isChest(int node) {
+            return this.map.getTile(this.cells[node]) == Tile.TREASURE_CHEST;
+        }
+
+        private boolean isTerminal(int node) {
+            return isChest(node) || this.depths[node] >= this.horizon;
+        }
+
+        // Filho não visitado primeiro, depois o maior UCB1
+        private int select(int node) {
+            int first = this.firstChildren[node];
+            int end = first + this.childCounts[node];
+            double logVisits = Math.log(this.visits[node]);
+            int best = first;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < end; child++) {
+                if (this.visits[child] == 0) {
+                    return child;
+                }
+                double score = this.values[child] / this.visits[child] + EXPLORATION * Math.sqrt(logVisits / this.visits[child]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        // Caminhada até o horizonte: na maior parte dos passos desce a distância até o baú mais
+        // próximo, no resto sorteia um vizinho
+        private double rollout(int cell, int depth) {
+            while (depth < this.horizon) {
+                int count = this.map.neighbourCells(cell, this.neighbours);
+                if (count == 0) {
+                    return 0.0;
+                }
+                int next = this.neighbours[this.random.nextInt(count)];
+                if (this.random.nextDouble() >= ROLLOUT_RANDOMNESS) {
+                    int bestDistance = this.map.getChestDistance(next);
+                    for (int i = 0; i < count; i++) {
+                        int distance = this.map.getChestDistance(this.neighbours[i]);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            next = this.neighbours[i];
+                        }
+                    }
+                }
+                depth++;
+                if (this.map.getTile(next) == Tile.TREASURE_CHEST) {
+                    return Math.pow(DISCOUNT, depth);
+                }
+                cell = next;
+            }
+            return 0.0;
+        }
+    }
+}
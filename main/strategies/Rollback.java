@@ -1,154 +1,214 @@
 package main.strategies;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Stack;
-import java.util.HashSet;
-import java.util.Set;
 import main.game.map.Map;
 import main.game.map.Point;
-import main.game.map.TreasureChest;
+import main.game.map.Tile;
 
 public class Rollback implements Strategy {
-    private Stack<Point> visitedPoints;
-    private Set<String> visitedPositions;
+    // Caminho atual como pilha de células (x * sizeY + y, em long para servir também a mapas
+    // sem índices int); uma célula está na pilha exatamente quando tem profundidade registrada
+    private long[] path;
+    private int pathSize;
+    private BitSet visited;
+    // Posição de cada célula na pilha; só é válida quando o bit em visited está ligado
+    private int[] depth;
+    // Mapas grandes demais para índices int: posição na pilha de cada célula visitada
+    private HashMap<Long, Integer> sparseDepth;
+    private long cellCount;
     private int maxConsecutiveRollbacks;
     private int currentConsecutiveRollbacks;
+    // Candidatos do passo atual e seus tiles, reaproveitados entre chamadas
+    private long[] candidates;
+    private byte[] tiles;
 
     public Rollback() {
-        this.visitedPoints = new Stack<>();
-        this.visitedPositions = new HashSet<>();
+        this.path = new long[16];
+        this.visited = new BitSet();
+        this.depth = new int[0];
         this.maxConsecutiveRollbacks = 3; // Limite de rollbacks consecutivos para evitar loops
         this.currentConsecutiveRollbacks = 0;
+        this.candidates = new long[4];
+        this.tiles = new byte[4];
+    }
+
+    @Override
+    public void reset() {
+        this.pathSize = 0;
+        this.visited.clear();
+        if (this.sparseDepth != null) {
+            this.sparseDepth.clear();
+        }
+        this.currentConsecutiveRollbacks = 0;
     }
 
     @Override
     public Point evaluatePossbileNextStep(List<Point> possibleNextSteps, Map map) {
-        if (possibleNextSteps.isEmpty()) {
+        int count = possibleNextSteps.size();
+        if (count == 0) {
             return null;
         }
+        ensureCapacity(map, count);
+        long sizeY = map.getSizeY();
+        for (int i = 0; i < count; i++) {
+            Point point = possibleNextSteps.get(i);
+            candidates[i] = point.getPositionX() * sizeY + point.getPositionY();
+            tiles[i] = map.getTile(point);
+        }
+        Point robotLocation = map.getRobotLocation();
+        long currentCell = robotLocation.getPositionX() * sizeY + robotLocation.getPositionY();
+        return possibleNextSteps.get(choose(currentCell, count));
+    }
 
-        Point currentPosition = map.getRobotLocation();
-        String currentPosKey = getPositionKey(currentPosition);
+    @Override
+    public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+        if (count == 0) {
+            return -1;
+        }
+        ensureCapacity(map, count);
+        for (int i = 0; i < count; i++) {
+            candidates[i] = cells[i];
+            tiles[i] = map.getTile(cells[i]);
+        }
+        return cells[choose(map.getRobotCell(), count)];
+    }
 
+    // Escolhe entre candidates[0..count) e devolve a posição do escolhido
+    private int choose(long currentCell, int count) {
         // Registra a posição atual se ainda não foi visitada
-        if (!visitedPositions.contains(currentPosKey)) {
-            visitedPositions.add(currentPosKey);
-            visitedPoints.push(currentPosition);
+        if (depthOf(currentCell) < 0) {
+            push(currentCell);
         }
 
         // 1. Primeira prioridade: procura por baú de tesouro adjacente
-        for (Point nextPoint : possibleNextSteps) {
-            String content = map.get(nextPoint);
-            if (TreasureChest.CHARACTER.equals(content)) {
-                return nextPoint;
+        for (int i = 0; i < count; i++) {
+            if (tiles[i] == Tile.TREASURE_CHEST) {
+                return i;
             }
         }
 
         // 2. Segunda prioridade: move para posição não visitada mais próxima
-        Point unvisitedPoint = findClosestUnvisitedPoint(possibleNextSteps, map);
-        if (unvisitedPoint != null) {
-            currentConsecutiveRollbacks = 0;
-            return unvisitedPoint;
+        // (todos os vizinhos estão à mesma distância do robô, então vale o primeiro)
+        for (int i = 0; i < count; i++) {
+            if (depthOf(candidates[i]) < 0) {
+                currentConsecutiveRollbacks = 0;
+                return i;
+            }
         }
 
         // 3. Se todas as posições possíveis já foram visitadas, tenta rollback
-        if (!visitedPoints.isEmpty() && currentConsecutiveRollbacks < maxConsecutiveRollbacks) {
-            Point rollbackPoint = findValidRollbackPoint(possibleNextSteps);
-            if (rollbackPoint != null) {
+        if (pathSize > 0 && currentConsecutiveRollbacks < maxConsecutiveRollbacks) {
+            int rollback = findValidRollback(count);
+            if (rollback >= 0) {
                 currentConsecutiveRollbacks++;
                 // Remove pontos do caminho atual até o ponto de rollback
-                while (!visitedPoints.isEmpty() && !visitedPoints.peek().equals(rollbackPoint)) {
-                    Point removed = visitedPoints.pop();
-                    visitedPositions.remove(getPositionKey(removed));
+                while (path[pathSize - 1] != candidates[rollback]) {
+                    forget(path[--pathSize]);
                 }
-                return rollbackPoint;
+                return rollback;
             }
         }
 
         // 4. Se não conseguir fazer rollback, escolhe o ponto com menor peso
         currentConsecutiveRollbacks = 0;
-        return findPointWithLowestWeight(possibleNextSteps, map);
-    }
-
-    private String getPositionKey(Point point) {
-        return point.getPositionX() + "," + point.getPositionY();
+        return findLowestWeight(count);
     }
 
-    private Point findClosestUnvisitedPoint(List<Point> possiblePoints, Map map) {
-        Point robotLocation = map.getRobotLocation();
-        Point closest = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (Point point : possiblePoints) {
-            String posKey = getPositionKey(point);
-            if (!visitedPositions.contains(posKey)) {
-                double distance = calculateDistance(robotLocation, point);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    closest = point;
-                }
+    private void ensureCapacity(Map map, int count) {
+        long mapCells = map.getCellCount();
+        if (mapCells != cellCount) {
+            cellCount = mapCells;
+            if (map.isCellIndexed()) {
+                depth = new int[(int) mapCells];
+                sparseDepth = null;
+            } else {
+                depth = new int[0];
+                sparseDepth = new HashMap<>();
             }
+            reset();
+        }
+        if (candidates.length < count) {
+            candidates = new long[count];
+            tiles = new byte[count];
         }
-        return closest;
     }
 
-    private Point findValidRollbackPoint(List<Point> possiblePoints) {
-        Stack<Point> tempStack = new Stack<>();
-        Point validPoint = null;
+    // Posição da célula na pilha, ou -1 se ela não estiver no caminho atual
+    private int depthOf(long cell) {
+        if (sparseDepth != null) {
+            return sparseDepth.getOrDefault(cell, -1);
+        }
+        return visited.get((int) cell) ? depth[(int) cell] : -1;
+    }
 
-        // Procura no histórico por um ponto válido para rollback
-        while (!visitedPoints.isEmpty() && validPoint == null) {
-            Point previousPoint = visitedPoints.peek();
-            if (possiblePoints.contains(previousPoint)) {
-                validPoint = previousPoint;
-            } else {
-                tempStack.push(visitedPoints.pop());
-            }
+    private void push(long cell) {
+        if (pathSize == path.length) {
+            path = Arrays.copyOf(path, pathSize * 2);
+        }
+        if (sparseDepth != null) {
+            sparseDepth.put(cell, pathSize);
+        } else {
+            depth[(int) cell] = pathSize;
+            visited.set((int) cell);
         }
+        path[pathSize++] = cell;
+    }
 
-        // Restaura os pontos removidos durante a busca
-        while (!tempStack.isEmpty()) {
-            visitedPoints.push(tempStack.pop());
+    private void forget(long cell) {
+        if (sparseDepth != null) {
+            sparseDepth.remove(cell);
+        } else {
+            visited.clear((int) cell);
         }
+    }
 
-        return validPoint;
+    // O ponto de rollback é o vizinho mais recente no caminho: em vez de desempilhar
+    // o histórico procurando por ele, basta comparar a profundidade dos vizinhos
+    private int findValidRollback(int count) {
+        int valid = -1;
+        int validDepth = -1;
+        for (int i = 0; i < count; i++) {
+            int cellDepth = depthOf(candidates[i]);
+            if (cellDepth > validDepth) {
+                validDepth = cellDepth;
+                valid = i;
+            }
+        }
+        return valid;
     }
 
-    private Point findPointWithLowestWeight(List<Point> possiblePoints, Map map) {
-        Point bestPoint = possiblePoints.get(0);
-        double lowestWeight = calculateWeight(bestPoint, map);
+    private int findLowestWeight(int count) {
+        int best = 0;
+        int lowestWeight = calculateWeight(0);
 
-        for (Point point : possiblePoints) {
-            double weight = calculateWeight(point, map);
+        for (int i = 1; i < count; i++) {
+            int weight = calculateWeight(i);
             if (weight < lowestWeight) {
                 lowestWeight = weight;
-                bestPoint = point;
+                best = i;
             }
         }
 
-        return bestPoint;
+        return best;
     }
 
-    private double calculateDistance(Point p1, Point p2) {
-        int dx = p1.getPositionX() - p2.getPositionX();
-        int dy = p1.getPositionY() - p2.getPositionY();
-        return Math.sqrt(dx * dx + dy * dy);
-    }
+    private int calculateWeight(int candidate) {
+        int weight = 0;
+        byte tile = tiles[candidate];
 
-    private double calculateWeight(Point point, Map map) {
-        double weight = 0;
-        String content = map.get(point);
-        
         // Penaliza posições já visitadas
-        if (visitedPositions.contains(getPositionKey(point))) {
+        if (depthOf(candidates[candidate]) >= 0) {
             weight += 10;
         }
 
         // Penaliza obstáculos
-        if (content != null && !content.equals("*") && !content.equals(TreasureChest.CHARACTER)) {
+        if (!Tile.isFree(tile) && tile != Tile.TREASURE_CHEST) {
             weight += 20;
         }
 
         return weight;
     }
-}
\ No newline at end of file
+}
@@ -23,4 +23,21 @@ public class ShortestDistance implements Strategy {
 		}
 		return closestPoint;
 	}
+
+	@Override
+	public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+		int robotX = map.cellX(map.getRobotCell());
+		int robotY = map.cellY(map.getRobotCell());
+		int closestCell = -1;
+		int minDistance = Integer.MAX_VALUE;
+
+		for (int i = 0; i < count; i++) {
+			int distance = Math.abs(map.cellX(cells[i]) - robotX) + Math.abs(map.cellY(cells[i]) - robotY);
+			if (distance < minDistance) {
+				minDistance = distance;
+				closestCell = cells[i];
+			}
+		}
+		return closestCell;
+	}
 }
\ No newline at end of file
@@ -17,6 +17,15 @@ public class Sort implements Strategy {
 		this.random = new Random();
 	}
 
+	public Sort(long seed) {
+		this.random = new Random(seed);
+	}
+
+	@Override
+	public void reset(long seed) {
+		this.random.setSeed(seed);
+	}
+
 	@Override
 	public Point evaluatePossbileNextStep(List<Point> possibleNextSteps, Map map) {
 		if (possibleNextSteps.isEmpty()) {
@@ -26,4 +35,12 @@ public class Sort implements Strategy {
 		int index = random.nextInt(possibleNextSteps.size());
 		return possibleNextSteps.get(index);
 	}
+
+	@Override
+	public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+		if (count == 0) {
+			return -1;
+		}
+		return cells[random.nextInt(count)];
+	}
 }
@@ -1,5 +1,6 @@
 package main.strategies;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import main.game.map.Map;
@@ -7,4 +8,25 @@ import main.game.map.Point;
 
 public interface Strategy {
 	public Point evaluatePossbileNextStep(List<Point> possibleNextStep, Map map);
+
+	// Caminho sem alocação: cells[0..count) são índices de célula (Map.cellIndex) dos vizinhos válidos.
+	// Retorna a célula escolhida ou -1. Estratégias não migradas usam este adaptador para a lista de Points.
+	public default int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+		List<Point> possibleNextStep = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			possibleNextStep.add(map.toPoint(cells[i]));
+		}
+		Point nextPoint = evaluatePossbileNextStep(possibleNextStep, map);
+		return nextPoint == null ? -1 : map.cellIndex(nextPoint);
+	}
+
+	// Descarta qualquer estado acumulado, para reaproveitar a instância em um novo jogo
+	public default void reset() {
+	}
+
+	// Como reset(), mas também reinicia o gerador aleatório da estratégia, se ela tiver um:
+	// com a mesma semente as decisões se repetem, e o analisador fica reproduzível com --seed
+	public default void reset(long seed) {
+		reset();
+	}
 }
@@ -1,89 +1,208 @@
 package main.strategies;
 
 import java.util.List;
-import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
 import main.game.map.Map;
 import main.game.map.Point;
 
 public class Votacao implements Strategy {
-    private List<Strategy> strategies;
+    private final Voter[] voters;
+    // remainingWeight[i] = total weight of voters i..n-1
+    private final double[] remainingWeight;
+    private final boolean parallel;
+    // Votes per candidate slot, reused on every step
+    private double[] tally;
+
+    // A strategy taking part in the vote. Expensive voters are the ones worth
+    // running concurrently in parallel mode. Stateful voters keep something from
+    // one step to the next (Rollback's visited cells), so they are never skipped.
+    public static class Voter {
+        private final Strategy strategy;
+        private final double weight;
+        private final boolean expensive;
+        private final boolean stateful;
+
+        public Voter(Strategy strategy, double weight, boolean expensive) {
+            this(strategy, weight, expensive, false);
+        }
+
+        public Voter(Strategy strategy, double weight, boolean expensive, boolean stateful) {
+            this.strategy = strategy;
+            this.weight = weight;
+            this.expensive = expensive;
+            this.stateful = stateful;
+        }
+    }
 
     public Votacao() {
-        // Initialize all available strategies
-        strategies = List.of(
-            new FewerObstacles(),
-            new ShortestDistance(),
-            new BinaryTreeDFS(),
-            new Sort(),
-            new Rollback()
-        );
+        this(false);
+    }
+
+    public Votacao(boolean parallel) {
+        // Cheap voters first, so short-circuiting skips the expensive ones. Rollback
+        // always votes, so it goes before BinaryTreeDFS, the one that can be skipped.
+        this(List.of(
+            new Voter(new FewerObstacles(), 1.0, false),
+            new Voter(new ShortestDistance(), 1.0, false),
+            new Voter(new Sort(), 1.0, false),
+            new Voter(new Rollback(), 1.0, true, true),
+            new Voter(new BinaryTreeDFS(), 1.0, true)
+        ), parallel);
+    }
+
+    public Votacao(List<Voter> voters, boolean parallel) {
+        this.voters = voters.toArray(new Voter[0]);
+        this.remainingWeight = new double[this.voters.length + 1];
+        for (int i = this.voters.length - 1; i >= 0; i--) {
+            this.remainingWeight[i] = this.remainingWeight[i + 1] + this.voters[i].weight;
+        }
+        this.parallel = parallel;
+        this.tally = new double[4];
+    }
+
+    @Override
+    public void reset() {
+        for (Voter voter : voters) {
+            voter.strategy.reset();
+        }
+    }
+
+    // Each voter gets its own seed derived from the game's seed
+    @Override
+    public void reset(long seed) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (Voter voter : voters) {
+            voter.strategy.reset(seeds.nextLong());
+        }
     }
 
+    // Maps too large for int cell indices only have the Point API, so the voters
+    // are asked through it there; every other map goes through the cell path
     @Override
     public Point evaluatePossbileNextStep(List<Point> possibleNextStep, Map map) {
-        if (possibleNextStep.isEmpty()) {
+        if (map.isCellIndexed()) {
+            int[] cells = new int[possibleNextStep.size()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = map.cellIndex(possibleNextStep.get(i));
+            }
+            int nextCell = evaluatePossibleNextCell(cells, cells.length, map);
+            return nextCell < 0 ? null : map.toPoint(nextCell);
+        }
+        int count = possibleNextStep.size();
+        if (count == 0) {
             return null;
         }
+        return possibleNextStep.get(elect(count, map,
+            strategy -> possibleNextStep.indexOf(strategy.evaluatePossbileNextStep(possibleNextStep, map))));
+    }
 
-        // Map to store votes for each point
-        HashMap<String, VoteInfo> votes = new HashMap<>();
-
-        // Initialize vote tracking for each possible point
-        for (Point point : possibleNextStep) {
-            String key = pointToString(point);
-            votes.put(key, new VoteInfo(point));
+    @Override
+    public int evaluatePossibleNextCell(int[] cells, int count, Map map) {
+        if (count == 0) {
+            return -1;
         }
+        return cells[elect(count, map, strategy -> indexOf(strategy.evaluatePossibleNextCell(cells, count, map), cells, count))];
+    }
 
-        // Collect votes from each strategy
-        for (Strategy strategy : strategies) {
-            Point recommendedPoint = strategy.evaluatePossbileNextStep(possibleNextStep, map);
-            if (recommendedPoint != null) {
-                String key = pointToString(recommendedPoint);
-                VoteInfo voteInfo = votes.get(key);
-                if (voteInfo != null) {
-                    voteInfo.incrementVotes();
-                }
-            }
+    // How a voter is asked for its choice: the candidate's slot, or -1 for none
+    private interface Ballot {
+        int cast(Strategy strategy);
+    }
+
+    private int elect(int count, Map map, Ballot ballot) {
+        if (tally.length < count) {
+            tally = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            tally[i] = 0.0;
         }
 
-        // Find the point with the most votes
-        VoteInfo winningPoint = null;
-        int maxVotes = -1;
+        if (parallel) {
+            collectVotesInParallel(count, map, ballot);
+        } else {
+            collectVotes(count, ballot);
+        }
 
-        for (VoteInfo voteInfo : votes.values()) {
-            if (voteInfo.getVotes() > maxVotes) {
-                maxVotes = voteInfo.getVotes();
-                winningPoint = voteInfo;
+        // Find the point with the most votes (ties go to the first candidate)
+        int winner = 0;
+        for (int i = 1; i < count; i++) {
+            if (tally[i] > tally[winner]) {
+                winner = i;
             }
         }
-
-        return winningPoint != null ? winningPoint.getPoint() : possibleNextStep.get(0);
+        return winner;
     }
 
-    private String pointToString(Point p) {
-        return p.getPositionX() + "," + p.getPositionY();
+    private void collectVotes(int count, Ballot ballot) {
+        boolean decided = false;
+        for (int i = 0; i < voters.length; i++) {
+            // Once the remaining voters can no longer overturn the leader, only the
+            // stateful ones still run, so they see every step of the game
+            if (decided && !voters[i].stateful) {
+                continue;
+            }
+            vote(voters[i], ballot.cast(voters[i].strategy));
+            decided = decided || isDecided(count, remainingWeight[i + 1]);
+        }
     }
 
-    // Helper class to track votes for each point
-    private static class VoteInfo {
-        private Point point;
-        private int votes;
-
-        public VoteInfo(Point point) {
-            this.point = point;
-            this.votes = 0;
+    // The map is not mutated while a decision is being made, so the expensive
+    // voters can read it concurrently as a read-only view. Its lazy caches are
+    // built here, before any task starts, so the voters only ever read them.
+    // Every task is joined before returning: a stateful voter must never overlap
+    // with its next call.
+    private void collectVotesInParallel(int count, Map map, Ballot ballot) {
+        if (map.isCellIndexed()) {
+            map.getAdjacentObstacleCount(map.getRobotCell());
+            map.getChestDistance(map.getRobotCell());
         }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<Integer>[] pending = new CompletableFuture[voters.length];
+        for (int i = 0; i < voters.length; i++) {
+            Strategy strategy = voters[i].strategy;
+            if (voters[i].expensive) {
+                pending[i] = CompletableFuture.supplyAsync(() -> ballot.cast(strategy));
+            }
+        }
+        for (int i = 0; i < voters.length; i++) {
+            if (pending[i] == null) {
+                vote(voters[i], ballot.cast(voters[i].strategy));
+            }
+        }
+        for (int i = 0; i < voters.length; i++) {
+            if (pending[i] != null) {
+                vote(voters[i], pending[i].join());
+            }
+        }
+    }
 
-        public void incrementVotes() {
-            votes++;
+    private static int indexOf(int recommendedCell, int[] cells, int count) {
+        for (int i = 0; i < count; i++) {
+            if (cells[i] == recommendedCell) {
+                return i;
+            }
         }
+        return -1;
+    }
 
-        public int getVotes() {
-            return votes;
+    private void vote(Voter voter, int candidate) {
+        if (candidate >= 0) {
+            tally[candidate] += voter.weight;
         }
+    }
 
-        public Point getPoint() {
-            return point;
+    private boolean isDecided(int count, double remaining) {
+        double first = Double.NEGATIVE_INFINITY;
+        double second = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            if (tally[i] > first) {
+                second = first;
+                first = tally[i];
+            } else if (tally[i] > second) {
+                second = tally[i];
+            }
         }
+        return count == 1 || first - second > remaining;
     }
-}
\ No newline at end of file
+}
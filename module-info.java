@@ -5,4 +5,5 @@
  * 
  */
 module WumpusSimulator {
-}
\ No newline at end of file
+	requires jdk.management;
+}